@@ -0,0 +1,99 @@
+package com.example.report;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the chained String.replace escaping the reporter used to do against
+ * {@link HtmlEscaper}, both writing into a buffered sink. Run with {@code -prof gc}
+ * to see the allocation difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class HtmlEscapingBenchmark {
+
+    @Param({"1024", "1048576"})
+    public int payloadChars;
+
+    /** One in this many characters needs escaping. */
+    @Param({"20", "1000000"})
+    public int specialEvery;
+
+    private String payload;
+    private DiscardingWriter out;
+
+    /** Stands in for the report's buffered file writer without the disk I/O. */
+    private static final class DiscardingWriter extends Writer {
+        private final char[] buffer = new char[64 * 1024];
+        long written;
+
+        @Override
+        public void write(char[] chars, int off, int len) {
+            written += len;
+        }
+
+        @Override
+        public void write(String text, int off, int len) {
+            // Copy like BufferedWriter does so both variants pay for moving the characters
+            while (len > 0) {
+                int chunk = Math.min(len, buffer.length);
+                text.getChars(off, off + chunk, buffer, 0);
+                off += chunk;
+                len -= chunk;
+                written += chunk;
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        char[] specials = {'&', '<', '>', '"', '\''};
+        StringBuilder text = new StringBuilder(payloadChars);
+        for (int i = 0; i < payloadChars; i++) {
+            text.append(i % specialEvery == specialEvery - 1 ? specials[i % specials.length] : (char) ('a' + i % 26));
+        }
+        payload = text.toString();
+        out = new DiscardingWriter();
+    }
+
+    @Benchmark
+    public long chainedReplace() throws IOException {
+        out.write(payload.replace("&", "&amp;")
+                         .replace("<", "&lt;")
+                         .replace(">", "&gt;")
+                         .replace("\"", "&quot;")
+                         .replace("'", "&#39;"));
+        return out.written;
+    }
+
+    @Benchmark
+    public long singlePass() throws IOException {
+        HtmlEscaper.escape(payload, out);
+        return out.written;
+    }
+}
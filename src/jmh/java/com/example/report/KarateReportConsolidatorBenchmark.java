@@ -0,0 +1,72 @@
+package com.example.report;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link KarateReportConsolidator#consolidateReports} against generated report
+ * directories. The fragment cache is off unless requested so each invocation parses every
+ * report. Run through {@code ./gradlew jmh} for allocation rates and peak RSS.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class KarateReportConsolidatorBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int features;
+
+    @Param({"20000"})
+    public int bytesPerFeature;
+
+    @Param({"INLINE", "EMBEDDED"})
+    public KarateReportConsolidator.PaneMode paneMode;
+
+    @Param({"false"})
+    public boolean fragmentCache;
+
+    @Param({"SINGLE_FILE", "SHARDED"})
+    public OutputLayout layout;
+
+    private Path workDir;
+    private String reportsDir;
+    private KarateReportConsolidator.Options options;
+
+    @Setup
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("consolidator-bench");
+        reportsDir = ReportFixtures.karateReportsDir(workDir, features, bytesPerFeature).toString();
+        options = new KarateReportConsolidator.Options()
+                .paneMode(paneMode)
+                .fragmentCache(fragmentCache)
+                .layout(layout);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ReportFixtures.deleteRecursively(workDir);
+    }
+
+    @Benchmark
+    public void consolidateReports() throws IOException {
+        KarateReportConsolidator.consolidateReports(reportsDir, options);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.report;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reports the resident set high-water mark of the benchmark JVM after each iteration, which
+ * none of JMH's own profilers do. Reads {@code VmHWM} from {@code /proc/self/status}, so it
+ * reports nothing off Linux. Enable with {@code -prof com.example.report.PeakRssProfiler}.
+ */
+public class PeakRssProfiler implements InternalProfiler {
+
+    private static final Path STATUS = Path.of("/proc/self/status");
+
+    @Override
+    public String getDescription() {
+        return "Peak resident set size (VmHWM) of the benchmark JVM";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+    }
+
+    @Override
+    public Collection<? extends Result<?>> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                          IterationResult result) {
+        long kilobytes = peakRssKilobytes();
+        if (kilobytes < 0) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(new ScalarResult("rss.peak", kilobytes / 1024.0, "MB", AggregationPolicy.MAX));
+    }
+
+    /** Returns the VmHWM line of /proc/self/status in kilobytes, or -1 if it cannot be read. */
+    static long peakRssKilobytes() {
+        if (!Files.isReadable(STATUS)) {
+            return -1;
+        }
+        try {
+            List<String> lines = Files.readAllLines(STATUS);
+            for (String line : lines) {
+                if (line.startsWith("VmHWM:")) {
+                    // Formatted as "VmHWM:   123456 kB"
+                    return Long.parseLong(line.substring(6).trim().split("\\s+")[0]);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not fatal for a benchmark run
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.report;
+
+import com.intuit.karate.Results;
+import com.intuit.karate.Runner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic inputs for the report benchmarks: real Karate results produced by running
+ * generated feature files, and directories shaped like Karate's HTML report output.
+ */
+final class ReportFixtures {
+
+    private ReportFixtures() {
+    }
+
+    /**
+     * Runs generated features through Karate and returns the results. Every tenth scenario
+     * fails, and each carries a payload of roughly the given size in its step log.
+     */
+    static Results karateResults(Path workDir, int features, int scenariosPerFeature, int payloadChars) throws IOException {
+        Path featureDir = Files.createDirectories(workDir.resolve("features"));
+        String payload = repeat('x', payloadChars);
+        for (int f = 0; f < features; f++) {
+            StringBuilder text = new StringBuilder();
+            text.append("@synthetic\n")
+                .append("Feature: Synthetic feature ").append(f).append("\n\n");
+            for (int s = 0; s < scenariosPerFeature; s++) {
+                text.append("@smoke @group").append(s % 7).append("\n")
+                    .append("Scenario: Synthetic scenario ").append(f).append('-').append(s).append("\n")
+                    .append("* def payload = { id: ").append(s).append(", body: '").append(payload).append("' }\n")
+                    .append("* print payload\n")
+                    .append("* match payload.id == ").append(s % 10 == 9 ? -1 : s).append("\n\n");
+            }
+            Files.write(featureDir.resolve("feature" + f + ".feature"), text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return Runner.path(featureDir.toAbsolutePath().toString())
+                .reportDir(workDir.resolve("karate-reports").toString())
+                .outputHtmlReport(false)
+                .outputCucumberJson(false)
+                .parallel(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Writes a karate-summary.html and the given number of feature reports, each padded to
+     * roughly the given size with step rows inside its div.container.
+     */
+    static Path karateReportsDir(Path workDir, int features, int bytesPerFeature) throws IOException {
+        Path reportsDir = Files.createDirectories(workDir.resolve("karate-reports"));
+        String head = "<head><meta charset=\"UTF-8\"><title>Karate</title>"
+                + "<style>body { font-family: sans-serif; } .step { padding: 2px; }</style>"
+                + "<script>var karate = { version: '1.4.1' };</script></head>";
+        Files.write(reportsDir.resolve("karate-summary.html"),
+                ("<!DOCTYPE html><html>" + head + "<body><div class=\"container\"><h1>Summary</h1>"
+                        + "<table><tr><td>features</td><td>" + features + "</td></tr></table></div></body></html>")
+                        .getBytes(StandardCharsets.UTF_8));
+        for (int f = 0; f < features; f++) {
+            StringBuilder html = new StringBuilder(bytesPerFeature + 1024);
+            html.append("<!DOCTYPE html><html>").append(head).append("<body><div class=\"nav\">nav</div>")
+                .append("<div class=\"container\"><h2>Synthetic feature ").append(f).append("</h2>");
+            for (int row = 0; html.length() < bytesPerFeature; row++) {
+                html.append("<div class=\"step ").append(row % 10 == 9 ? "failed" : "passed").append("\">")
+                    .append("<span>* match response.items[").append(row).append("].id == ").append(row).append("</span>")
+                    .append("<pre>{ \"id\": ").append(row).append(", \"name\": \"item &lt;").append(row).append("&gt;\" }</pre></div>");
+            }
+            html.append("</div></body></html>");
+            Files.write(reportsDir.resolve("feature" + f + ".html"), html.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return reportsDir;
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        java.util.Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.report;
+
+import com.intuit.karate.Results;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SingleFileHtmlReporter#generateReport} against real Karate results of
+ * configurable size. Run through {@code ./gradlew jmh} for allocation rates and peak RSS.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class SingleFileHtmlReporterBenchmark {
+
+    @Param({"10", "100"})
+    public int features;
+
+    @Param({"10", "100"})
+    public int scenariosPerFeature;
+
+    @Param({"1024"})
+    public int payloadChars;
+
+    @Param({"SINGLE_FILE", "SHARDED"})
+    public OutputLayout layout;
+
+    @Param({"false", "true"})
+    public boolean failureFirst;
+
+    private Path workDir;
+    private Results results;
+    private SingleFileHtmlReporter.Options options;
+
+    @Setup
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("single-file-report-bench");
+        results = ReportFixtures.karateResults(workDir, features, scenariosPerFeature, payloadChars);
+        options = new SingleFileHtmlReporter.Options().layout(layout).failureFirst(failureFirst);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ReportFixtures.deleteRecursively(workDir);
+    }
+
+    @Benchmark
+    public void generateReport() {
+        SingleFileHtmlReporter.generateReport(results, options);
+    }
+}
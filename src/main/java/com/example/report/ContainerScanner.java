@@ -0,0 +1,278 @@
+package com.example.report;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Finds the first {@code div.container} of an HTML report without building a DOM. The file is
+ * memory-mapped, or read into a per-thread reusable buffer when small, and scanned as bytes:
+ * all markup the scanner cares about is ASCII, so UTF-8 content can be skipped undecoded. Only
+ * the container's own bytes are decoded. Comments and the raw-text elements (script, style,
+ * textarea, title) are skipped so markup inside them is not mistaken for tags.
+ */
+final class ContainerScanner {
+
+    /** Files at least this large are mapped instead of copied. */
+    private static final int MAP_THRESHOLD = 256 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> READ_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(64 * 1024));
+
+    private static final byte[][] RAW_TEXT_ELEMENTS = {
+        ascii("script"), ascii("style"), ascii("textarea"), ascii("title")
+    };
+    private static final byte[] DIV = ascii("div");
+    private static final byte[] CLASS = ascii("class");
+    private static final byte[] CONTAINER = ascii("container");
+
+    private ContainerScanner() {
+    }
+
+    /**
+     * Returns the HTML of the first div whose class list contains {@code container}, or null if
+     * there is none or its end tag cannot be found, in which case a full parse should decide.
+     */
+    static String extractContainer(Path reportPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(reportPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer;
+            if (size >= MAP_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = READ_BUFFER.get();
+                if (buffer.capacity() < size) {
+                    buffer = ByteBuffer.allocate((int) size);
+                    READ_BUFFER.set(buffer);
+                }
+                buffer.clear();
+                while (buffer.position() < size && channel.read(buffer) >= 0) {
+                    // keep reading until the file is in the buffer
+                }
+                buffer.flip();
+            }
+            return extractContainer(buffer);
+        }
+    }
+
+    static String extractContainer(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        int start = -1;
+        int depth = 0;
+        int i = 0;
+        while (i < limit) {
+            if (buffer.get(i) != '<') {
+                i++;
+                continue;
+            }
+            if (startsWith(buffer, i + 1, "!--")) {
+                i = indexOf(buffer, i + 4, "-->");
+                if (i < 0) {
+                    return null;
+                }
+                i += 3;
+                continue;
+            }
+            boolean closing = i + 1 < limit && buffer.get(i + 1) == '/';
+            int nameStart = closing ? i + 2 : i + 1;
+            int nameEnd = nameStart;
+            while (nameEnd < limit && isNameChar(buffer.get(nameEnd))) {
+                nameEnd++;
+            }
+            if (nameEnd == nameStart) {
+                // A lone '<' in text
+                i++;
+                continue;
+            }
+            int tagEnd = tagEnd(buffer, nameEnd);
+            if (tagEnd < 0) {
+                return null;
+            }
+            if (!closing) {
+                byte[] rawText = rawTextElement(buffer, nameStart, nameEnd);
+                if (rawText != null) {
+                    i = closingTag(buffer, tagEnd, rawText);
+                    if (i < 0) {
+                        return null;
+                    }
+                    continue;
+                }
+            }
+            if (equalsIgnoreCase(buffer, nameStart, nameEnd, DIV)) {
+                if (closing) {
+                    if (start >= 0 && --depth == 0) {
+                        return decode(buffer, start, tagEnd);
+                    }
+                } else if (start >= 0) {
+                    depth++;
+                } else if (hasContainerClass(buffer, nameEnd, tagEnd)) {
+                    start = i;
+                    depth = 1;
+                }
+            }
+            i = tagEnd;
+        }
+        return null;
+    }
+
+    /** Returns the index just past the '>' ending the tag, honouring quoted attribute values. */
+    private static int tagEnd(ByteBuffer buffer, int from) {
+        int limit = buffer.limit();
+        byte quote = 0;
+        for (int i = from; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the index just past the end tag of a raw-text element. */
+    private static int closingTag(ByteBuffer buffer, int from, byte[] name) {
+        int limit = buffer.limit();
+        for (int i = from; i < limit - 1; i++) {
+            if (buffer.get(i) == '<' && buffer.get(i + 1) == '/'
+                    && equalsIgnoreCase(buffer, i + 2, Math.min(limit, i + 2 + name.length), name)
+                    && (i + 2 + name.length >= limit || !isNameChar(buffer.get(i + 2 + name.length)))) {
+                return tagEnd(buffer, i + 2 + name.length);
+            }
+        }
+        return -1;
+    }
+
+    private static boolean hasContainerClass(ByteBuffer buffer, int from, int tagEnd) {
+        int i = from;
+        int end = tagEnd - 1;
+        while (i < end) {
+            byte b = buffer.get(i);
+            if (!isNameChar(b)) {
+                i++;
+                continue;
+            }
+            int nameStart = i;
+            while (i < end && isNameChar(buffer.get(i))) {
+                i++;
+            }
+            int nameEnd = i;
+            while (i < end && isSpace(buffer.get(i))) {
+                i++;
+            }
+            int valueStart = i;
+            int valueEnd = i;
+            if (i < end && buffer.get(i) == '=') {
+                i++;
+                while (i < end && isSpace(buffer.get(i))) {
+                    i++;
+                }
+                if (i < end && (buffer.get(i) == '"' || buffer.get(i) == '\'')) {
+                    byte quote = buffer.get(i++);
+                    valueStart = i;
+                    while (i < end && buffer.get(i) != quote) {
+                        i++;
+                    }
+                    valueEnd = i++;
+                } else {
+                    valueStart = i;
+                    while (i < end && !isSpace(buffer.get(i))) {
+                        i++;
+                    }
+                    valueEnd = i;
+                }
+            }
+            if (equalsIgnoreCase(buffer, nameStart, nameEnd, CLASS)) {
+                return containsToken(buffer, valueStart, valueEnd, CONTAINER);
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsToken(ByteBuffer buffer, int from, int to, byte[] token) {
+        int i = from;
+        while (i < to) {
+            while (i < to && isSpace(buffer.get(i))) {
+                i++;
+            }
+            int tokenStart = i;
+            while (i < to && !isSpace(buffer.get(i))) {
+                i++;
+            }
+            if (i > tokenStart && equalsIgnoreCase(buffer, tokenStart, i, token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] rawTextElement(ByteBuffer buffer, int nameStart, int nameEnd) {
+        for (byte[] name : RAW_TEXT_ELEMENTS) {
+            if (equalsIgnoreCase(buffer, nameStart, nameEnd, name)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(start).limit(end);
+        return StandardCharsets.UTF_8.decode(slice).toString();
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int at, String text) {
+        if (at + text.length() > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (buffer.get(at + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, String text) {
+        for (int i = from; i + text.length() <= buffer.limit(); i++) {
+            if (startsWith(buffer, i, text)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equalsIgnoreCase(ByteBuffer buffer, int from, int to, byte[] lowerCase) {
+        if (to - from != lowerCase.length) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length; i++) {
+            byte b = buffer.get(from + i);
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != lowerCase[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNameChar(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '-' || b == '_' || b == ':';
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.report;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk cache of the div.container HTML extracted from each feature report, so that
+ * re-running the consolidator only re-parses reports that were added or changed.
+ * Entries are keyed by the report path relative to the reports directory and are
+ * valid while the report's size and modification time are unchanged. A cache made with
+ * {@link #inMemory()} holds the fragments themselves and lives only as long as its owner.
+ */
+class FragmentCache {
+
+    private static final String INDEX_FILE = "index.properties";
+    private static final String NO_CONTAINER = "-";
+    /** Bumped whenever the fragment file layout changes, which drops every older entry. */
+    private static final String FORMAT_KEY = "@format";
+    private static final String FORMAT = "2";
+
+    private final Path cacheDir;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /** Container HTML of a report plus the search terms of its text. */
+    static final class Fragment {
+        static final Fragment NONE = new Fragment("", "");
+
+        final String html;
+        final String terms;
+
+        Fragment(String html, String terms) {
+            this.html = html;
+            this.terms = terms;
+        }
+    }
+
+    private static final class Entry {
+        final long size;
+        final long modified;
+        final String fragmentFile;
+        /** The fragment itself, for in-memory caches. */
+        final Fragment fragment;
+
+        Entry(long size, long modified, String fragmentFile, Fragment fragment) {
+            this.size = size;
+            this.modified = modified;
+            this.fragmentFile = fragmentFile;
+            this.fragment = fragment;
+        }
+
+        boolean matches(BasicFileAttributes attrs) {
+            return size == attrs.size() && modified == attrs.lastModifiedTime().toMillis();
+        }
+    }
+
+    private FragmentCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    static FragmentCache open(Path cacheDir) throws IOException {
+        FragmentCache cache = new FragmentCache(cacheDir);
+        Files.createDirectories(cacheDir);
+        Path index = cacheDir.resolve(INDEX_FILE);
+        if (Files.exists(index)) {
+            Properties props = new Properties();
+            try (Reader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+                props.load(reader);
+            } catch (IllegalArgumentException e) {
+                // A corrupt index only costs a full re-parse
+                return cache;
+            }
+            if (!FORMAT.equals(props.getProperty(FORMAT_KEY))) {
+                return cache;
+            }
+            props.remove(FORMAT_KEY);
+            for (String key : props.stringPropertyNames()) {
+                String[] parts = props.getProperty(key).split(",", 3);
+                if (parts.length == 3) {
+                    try {
+                        cache.entries.put(key, new Entry(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2], null));
+                    } catch (NumberFormatException e) {
+                        // Skip the entry; the report will be re-parsed
+                    }
+                }
+            }
+        }
+        return cache;
+    }
+
+    /** Returns an empty cache that keeps fragments in memory and never touches the disk. */
+    static FragmentCache inMemory() {
+        return new FragmentCache(null);
+    }
+
+    /**
+     * Returns the cached fragment for the report, {@link Fragment#NONE} if the report is known
+     * to have no container, or null if the report must be parsed again.
+     */
+    Fragment get(String relativePath, BasicFileAttributes attrs) {
+        Entry entry = entries.get(relativePath);
+        if (entry == null || !entry.matches(attrs)) {
+            return null;
+        }
+        if (entry.fragment != null) {
+            return entry.fragment;
+        }
+        if (NO_CONTAINER.equals(entry.fragmentFile)) {
+            return Fragment.NONE;
+        }
+        String content;
+        try {
+            content = new String(Files.readAllBytes(cacheDir.resolve(entry.fragmentFile)), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+        // Terms are whitespace-free words, so the first line break ends them
+        int split = content.indexOf('\n');
+        return split < 0 ? null : new Fragment(content.substring(split + 1), content.substring(0, split));
+    }
+
+    /** Stores the fragment for the report; a null fragment records that the report has no container. */
+    void put(String relativePath, BasicFileAttributes attrs, Fragment fragment) throws IOException {
+        String fragmentFile = NO_CONTAINER;
+        if (cacheDir == null) {
+            entries.put(relativePath, new Entry(attrs.size(), attrs.lastModifiedTime().toMillis(), fragmentFile, fragment));
+            return;
+        }
+        if (fragment != null) {
+            fragmentFile = fragmentFileName(relativePath);
+            Files.write(cacheDir.resolve(fragmentFile), (fragment.terms + "\n" + fragment.html).getBytes(StandardCharsets.UTF_8));
+        }
+        entries.put(relativePath, new Entry(attrs.size(), attrs.lastModifiedTime().toMillis(), fragmentFile, null));
+    }
+
+    /** Evicts entries for reports that no longer exist and persists the index. */
+    void save(Set<String> livePaths) throws IOException {
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (!livePaths.contains(e.getKey())) {
+                entries.remove(e.getKey());
+                if (cacheDir != null && !NO_CONTAINER.equals(e.getValue().fragmentFile)) {
+                    Files.deleteIfExists(cacheDir.resolve(e.getValue().fragmentFile));
+                }
+            }
+        }
+        if (cacheDir == null) {
+            return;
+        }
+        Properties props = new Properties();
+        props.setProperty(FORMAT_KEY, FORMAT);
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            props.setProperty(e.getKey(), entry.size + "," + entry.modified + "," + entry.fragmentFile);
+        }
+        Path tmp = cacheDir.resolve(INDEX_FILE + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            props.store(writer, null);
+        }
+        Files.move(tmp, cacheDir.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String fragmentFileName(String relativePath) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(relativePath.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(40);
+            for (int i = 0; i < 16; i++) {
+                name.append(Character.forDigit((digest[i] >> 4) & 0xf, 16))
+                    .append(Character.forDigit(digest[i] & 0xf, 16));
+            }
+            return name.append(".fragment").toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.report;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses report payloads for embedding in HTML and provides the matching browser-side
+ * decoder. Base64 output never contains markup, so it is safe inside script blocks.
+ */
+final class GzipBase64 {
+
+    /**
+     * Defines {@code inflatePayload(base64)}, which returns a Promise of the decoded text.
+     * Relies on the browser's DecompressionStream.
+     */
+    static final String INFLATE_FUNCTION_JS =
+        "function inflatePayload(base64) {\n" +
+        "  var binary = atob(base64.trim());\n" +
+        "  var bytes = new Uint8Array(binary.length);\n" +
+        "  for (var i = 0; i < binary.length; i++) {\n" +
+        "    bytes[i] = binary.charCodeAt(i);\n" +
+        "  }\n" +
+        "  var stream = new Blob([bytes]).stream().pipeThrough(new DecompressionStream('gzip'));\n" +
+        "  return new Response(stream).text();\n" +
+        "}\n";
+
+    private GzipBase64() {
+    }
+
+    static String encode(String text) {
+        return encode(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Compresses text that is already UTF-8 encoded. */
+    static String encode(byte[] raw) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(raw);
+        } catch (IOException e) {
+            // Only in-memory streams are involved
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getEncoder().encodeToString(compressed.toByteArray());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.report;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes everything to the underlying stream and, on a separate thread, to a gzip-compressed
+ * copy, so a report and its {@code .gz} variant come out of a single serialization pass.
+ * Writes should arrive in large chunks, e.g. through the buffer of an {@link HtmlOutput},
+ * since each one is copied and queued for the compressor. The queue is bounded, so a slow
+ * compressor holds the writer back instead of buffering the whole report.
+ */
+final class GzipTeeOutputStream extends OutputStream {
+
+    private static final int QUEUED_CHUNKS = 16;
+    private static final byte[] END = new byte[0];
+
+    private final OutputStream out;
+    private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+    private final Thread compressor;
+    private volatile IOException failure;
+    private boolean closed;
+
+    /** Tees {@code out} into a gzip stream written to {@code gzipOut}; closing this stream closes both. */
+    GzipTeeOutputStream(OutputStream out, OutputStream gzipOut) throws IOException {
+        this.out = out;
+        OutputStream gzip = new GZIPOutputStream(gzipOut, SingleFileHtmlReporter.WRITE_BUFFER_SIZE);
+        compressor = new Thread(() -> compress(gzip), "report-gzip");
+        compressor.setDaemon(true);
+        compressor.start();
+    }
+
+    private void compress(OutputStream gzip) {
+        try {
+            // Keep draining after a failure so the writer never blocks on a full queue
+            for (byte[] chunk = chunks.take(); chunk != END; chunk = chunks.take()) {
+                if (failure == null) {
+                    try {
+                        gzip.write(chunk);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("Interrupted while compressing the report");
+        } finally {
+            try {
+                gzip.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        if (len > 0 && failure == null) {
+            enqueue(Arrays.copyOfRange(b, off, off + len));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /** Closes the underlying stream and waits for the compressed copy to be complete. */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.close();
+        } finally {
+            enqueue(END);
+            try {
+                compressor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the compressed report");
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void enqueue(byte[] chunk) throws IOException {
+        try {
+            chunks.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            compressor.interrupt();
+            throw new InterruptedIOException("Interrupted while writing the report");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.report;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Single-pass HTML escaping that writes straight to the output, copying unescaped runs
+ * without creating intermediate strings. Safe for element content and quoted attributes.
+ */
+final class HtmlEscaper {
+
+    private HtmlEscaper() {
+    }
+
+    static void escape(String text, Writer out) throws IOException {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            String replacement = replacement(text.charAt(i));
+            if (replacement != null) {
+                if (i > start) {
+                    out.write(text, start, i - start);
+                }
+                out.write(replacement);
+                start = i + 1;
+            }
+        }
+        if (start < length) {
+            out.write(text, start, length - start);
+        }
+    }
+
+    private static String replacement(char c) {
+        switch (c) {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            case '"':
+                return "&quot;";
+            case '\'':
+                return "&#39;";
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.report;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Buffered UTF-8 writer that reports are rendered into. Characters are encoded straight into
+ * its byte buffer, without the char buffer and charset encoder of an {@code OutputStreamWriter},
+ * and the static chunks of an {@link HtmlTemplate}, encoded once, are copied in as bytes.
+ * Unpaired surrogates are written as {@code ?}, as the JDK encoder does.
+ */
+final class HtmlOutput extends Writer {
+
+    /** Room for the longest number, so digits are always written straight into the buffer. */
+    static final int MIN_BUFFER_SIZE = 20;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int count;
+    // High surrogate whose pair has not been written yet
+    private char pendingHigh;
+    private boolean closed;
+
+    HtmlOutput(OutputStream out, int bufferSize) {
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("bufferSize must be at least " + MIN_BUFFER_SIZE + " bytes");
+        }
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /** Copies bytes that are already UTF-8, such as a template chunk. */
+    void writeEncoded(byte[] bytes) throws IOException {
+        flushPendingHigh();
+        if (bytes.length > buffer.length - count) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    /** Writes a number's digits without building a string. */
+    void writeLong(long value) throws IOException {
+        flushPendingHigh();
+        if (value == Long.MIN_VALUE) {
+            write("-9223372036854775808");
+            return;
+        }
+        if (buffer.length - count < 20) {
+            flushBuffer();
+        }
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+        int end = count + digits(value);
+        int pos = end;
+        do {
+            buffer[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        count = end;
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        for (long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    /** Writes a placeholder value as it is: numbers as digits, anything else as its text; null as nothing. */
+    void writeValue(Object value) throws IOException {
+        if (value instanceof Integer || value instanceof Long) {
+            writeLong(((Number) value).longValue());
+        } else if (value != null) {
+            write(value.toString());
+        }
+    }
+
+    /** Writes a placeholder value HTML-escaped. */
+    void writeEscapedValue(Object value) throws IOException {
+        if (value instanceof Integer || value instanceof Long) {
+            writeLong(((Number) value).longValue());
+        } else if (value != null) {
+            HtmlEscaper.escape(value.toString(), this);
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        encode((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            encode(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String text, int off, int len) throws IOException {
+        int end = off + len;
+        int i = off;
+        while (i < end) {
+            if (buffer.length - count < 4) {
+                flushBuffer();
+            }
+            // ASCII runs go straight into the buffer
+            int limit = Math.min(end, i + buffer.length - count);
+            if (pendingHigh == 0) {
+                char c;
+                while (i < limit && (c = text.charAt(i)) < 0x80) {
+                    buffer[count++] = (byte) c;
+                    i++;
+                }
+                if (i == limit) {
+                    continue;
+                }
+            }
+            encode(text.charAt(i++));
+        }
+    }
+
+    @Override
+    public Writer append(CharSequence text) throws IOException {
+        String value = String.valueOf(text);
+        write(value, 0, value.length());
+        return this;
+    }
+
+    private void encode(char c) throws IOException {
+        if (buffer.length - count < 4) {
+            flushBuffer();
+        }
+        if (pendingHigh != 0) {
+            char high = pendingHigh;
+            pendingHigh = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+                return;
+            }
+            buffer[count++] = '?';
+        }
+        if (c < 0x80) {
+            buffer[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[count++] = (byte) (0xc0 | (c >> 6));
+            buffer[count++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHigh = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer[count++] = '?';
+        } else {
+            buffer[count++] = (byte) (0xe0 | (c >> 12));
+            buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            buffer[count++] = (byte) (0x80 | (c & 0x3f));
+        }
+    }
+
+    private void flushPendingHigh() throws IOException {
+        if (pendingHigh != 0) {
+            if (count == buffer.length) {
+                flushBuffer();
+            }
+            pendingHigh = 0;
+            buffer[count++] = '?';
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flushPendingHigh();
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.report;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A piece of report markup with {@code {{name}}} placeholders, compiled once into UTF-8 chunks
+ * and slots. Rendering copies chunk, value, chunk and so on straight into an {@link HtmlOutput},
+ * with no string building and no document tree. {@code {{name}}} values are HTML-escaped and
+ * {@code {{&name}}} values, meant for markup and script, are written as they are. Values are
+ * passed in the order their names first appear; a name used twice takes one value.
+ *
+ * <pre>
+ * static final HtmlTemplate TAG = HtmlTemplate.compile("&lt;span class=\"tag\"&gt;{{tag}}&lt;/span&gt;\n");
+ * TAG.render(html, tag);
+ * </pre>
+ */
+final class HtmlTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{(&?)([A-Za-z][A-Za-z0-9]*)}}");
+
+    private final byte[][] chunks;
+    private final int[] values;
+    private final boolean[] raw;
+    private final int arity;
+
+    private HtmlTemplate(byte[][] chunks, int[] values, boolean[] raw, int arity) {
+        this.chunks = chunks;
+        this.values = values;
+        this.raw = raw;
+        this.arity = arity;
+    }
+
+    static HtmlTemplate compile(String source) {
+        List<byte[]> chunks = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Integer> values = new ArrayList<>();
+        List<Boolean> raw = new ArrayList<>();
+        Matcher placeholder = PLACEHOLDER.matcher(source);
+        int start = 0;
+        while (placeholder.find()) {
+            chunks.add(source.substring(start, placeholder.start()).getBytes(StandardCharsets.UTF_8));
+            String name = placeholder.group(2);
+            if (!names.contains(name)) {
+                names.add(name);
+            }
+            values.add(names.indexOf(name));
+            raw.add(!placeholder.group(1).isEmpty());
+            start = placeholder.end();
+        }
+        chunks.add(source.substring(start).getBytes(StandardCharsets.UTF_8));
+        int[] valueIndexes = new int[values.size()];
+        boolean[] rawFlags = new boolean[raw.size()];
+        for (int i = 0; i < valueIndexes.length; i++) {
+            valueIndexes[i] = values.get(i);
+            rawFlags[i] = raw.get(i);
+        }
+        return new HtmlTemplate(chunks.toArray(new byte[0][]), valueIndexes, rawFlags, names.size());
+    }
+
+    /** Writes a template without placeholders. */
+    void render(HtmlOutput out) throws IOException {
+        if (arity != 0) {
+            throw new IllegalArgumentException("Template takes " + arity + " values, got none");
+        }
+        out.writeEncoded(chunks[0]);
+    }
+
+    /** Writes the template with its placeholders filled in; numbers are written as digits and nulls as nothing. */
+    void render(HtmlOutput out, Object... values) throws IOException {
+        if (values.length != arity) {
+            throw new IllegalArgumentException("Template takes " + arity + " values, got " + values.length);
+        }
+        out.writeEncoded(chunks[0]);
+        for (int i = 0; i < this.values.length; i++) {
+            Object value = values[this.values[i]];
+            if (raw[i]) {
+                out.writeValue(value);
+            } else {
+                out.writeEscapedValue(value);
+            }
+            out.writeEncoded(chunks[i + 1]);
+        }
+    }
+}
@@ -0,0 +1,879 @@
+package com.example.report;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class KarateReportConsolidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(KarateReportConsolidator.class);
+
+    private static final String LAZY_PANES_JS =
+        "(function() {\n" +
+        "  var waiting = {};\n" +
+        "  \n" +
+        "  // Called by each sidecar pane script once it has loaded\n" +
+        "  window.karatePaneLoaded = function(index, payload) {\n" +
+        "    if (waiting[index]) {\n" +
+        "      waiting[index](payload);\n" +
+        "      delete waiting[index];\n" +
+        "    }\n" +
+        "  };\n" +
+        "  \n" +
+        "  function fetchPayload(pane, index) {\n" +
+        "    var embedded = pane.querySelector('script.pane-payload');\n" +
+        "    if (embedded) {\n" +
+        "      return Promise.resolve(embedded.textContent);\n" +
+        "    }\n" +
+        "    return new Promise(function(resolve, reject) {\n" +
+        "      waiting[index] = resolve;\n" +
+        "      var script = document.createElement('script');\n" +
+        "      script.src = '{{panesDir}}/' + index + '.js';\n" +
+        "      script.onerror = reject;\n" +
+        "      script.onload = function() { script.remove(); };\n" +
+        "      document.head.appendChild(script);\n" +
+        "    });\n" +
+        "  }\n" +
+        "  \n" +
+        "  function loadPane(pane) {\n" +
+        "    if (!pane || !pane.hasAttribute('data-pane') || pane.hasAttribute('data-loading')) {\n" +
+        "      return;\n" +
+        "    }\n" +
+        "    pane.setAttribute('data-loading', 'true');\n" +
+        "    var index = pane.getAttribute('data-pane');\n" +
+        "    fetchPayload(pane, index).then(inflatePayload).then(function(html) {\n" +
+        "      // Replacing the content also drops the compressed payload\n" +
+        "      pane.innerHTML = html;\n" +
+        "      pane.setAttribute('data-loaded', 'true');\n" +
+        "    }, function() {\n" +
+        "      pane.removeAttribute('data-loading');\n" +
+        "    });\n" +
+        "  }\n" +
+        "  \n" +
+        "  document.addEventListener('DOMContentLoaded', function() {\n" +
+        "    document.querySelectorAll('.nav-tabs li a').forEach(function(tab) {\n" +
+        "      tab.addEventListener('click', function() {\n" +
+        "        loadPane(document.getElementById(this.getAttribute('href').substring(1)));\n" +
+        "      });\n" +
+        "    });\n" +
+        "    loadPane(document.querySelector('.tab-pane.active'));\n" +
+        "  });\n" +
+        "})();\n";
+
+    // Filters the links of a sharded report by the features matching the query
+    private static final String FEATURE_LINKS_JS =
+        "document.addEventListener('DOMContentLoaded', function() {\n" +
+        "  var searchInput = document.getElementById('search-input');\n" +
+        "  var links = document.querySelectorAll('.feature-link');\n" +
+        "  \n" +
+        "  searchInput.addEventListener('input', KarateSearch.debounce(function() {\n" +
+        "    var searchTerm = searchInput.value.toLowerCase();\n" +
+        "    var matches = searchTerm.length < 3 ? null : KarateSearch.query(searchTerm);\n" +
+        "    links.forEach(function(link, i) {\n" +
+        "      link.style.display = matches === null || matches.has(i) ? '' : 'none';\n" +
+        "    });\n" +
+        "  }, 150));\n" +
+        "});";
+
+    // Tab switching, and search over the index with highlighting in the open pane
+    private static final String TABS_JS =
+        "document.addEventListener('DOMContentLoaded', function() {\n" +
+        "  // Tab switching functionality\n" +
+        "  var tabs = document.querySelectorAll('.nav-tabs li a');\n" +
+        "  \n" +
+        "  tabs.forEach(function(tab) {\n" +
+        "    tab.addEventListener('click', function(e) {\n" +
+        "      e.preventDefault();\n" +
+        "      \n" +
+        "      // Remove active class from all tabs\n" +
+        "      document.querySelectorAll('.nav-tabs li').forEach(function(item) {\n" +
+        "        item.classList.remove('active');\n" +
+        "      });\n" +
+        "      \n" +
+        "      // Add active class to clicked tab\n" +
+        "      this.parentElement.classList.add('active');\n" +
+        "      \n" +
+        "      // Hide all tab content\n" +
+        "      document.querySelectorAll('.tab-pane').forEach(function(pane) {\n" +
+        "        pane.classList.remove('active');\n" +
+        "      });\n" +
+        "      \n" +
+        "      // Show clicked tab content\n" +
+        "      var target = this.getAttribute('href').substring(1);\n" +
+        "      document.getElementById(target).classList.add('active');\n" +
+        "    });\n" +
+        "  });\n" +
+        "  \n" +
+        "  // Search functionality\n" +
+        "  var searchInput = document.getElementById('search-input');\n" +
+        "  \n" +
+        "  var tabItems = document.querySelectorAll('.nav-tabs li');\n" +
+        "  \n" +
+        "  // Matches come from the prebuilt index, so only the visible pane is ever scanned\n" +
+        "  searchInput.addEventListener('input', KarateSearch.debounce(function() {\n" +
+        "    var searchTerm = searchInput.value.toLowerCase();\n" +
+        "    \n" +
+        "    // Reset all highlighting\n" +
+        "    document.querySelectorAll('.search-highlight').forEach(function(el) {\n" +
+        "      var text = el.textContent;\n" +
+        "      el.replaceWith(text);\n" +
+        "    });\n" +
+        "    \n" +
+        "    var matches = searchTerm.length < 3 ? null : KarateSearch.query(searchTerm);\n" +
+        "    var firstMatch = null;\n" +
+        "    var activeMatches = false;\n" +
+        "    tabItems.forEach(function(item, i) {\n" +
+        "      var visible = matches === null || matches.has(i);\n" +
+        "      item.style.display = visible ? '' : 'none';\n" +
+        "      if (visible && firstMatch === null) {\n" +
+        "        firstMatch = item;\n" +
+        "      }\n" +
+        "      if (visible && item.classList.contains('active')) {\n" +
+        "        activeMatches = true;\n" +
+        "      }\n" +
+        "    });\n" +
+        "    if (matches === null) {\n" +
+        "      return;\n" +
+        "    }\n" +
+        "    \n" +
+        "    // Show the first matching tab unless the open one matches\n" +
+        "    if (!activeMatches && firstMatch !== null) {\n" +
+        "      firstMatch.querySelector('a').click();\n" +
+        "    }\n" +
+        "    \n" +
+        "    // Highlight matches in the open pane once its content is present\n" +
+        "    var pane = document.querySelector('.tab-pane.active');\n" +
+        "    if (pane && (!pane.hasAttribute('data-pane') || pane.hasAttribute('data-loaded'))) {\n" +
+        "      highlightText(pane, searchTerm);\n" +
+        "    }\n" +
+        "  }, 150));\n" +
+        "  \n" +
+        "  function highlightText(element, term) {\n" +
+        "    var nodes = element.childNodes;\n" +
+        "    \n" +
+        "    for (var i = 0; i < nodes.length; i++) {\n" +
+        "      var node = nodes[i];\n" +
+        "      \n" +
+        "      if (node.nodeType === 3) { // Text node\n" +
+        "        var text = node.nodeValue;\n" +
+        "        var index = text.toLowerCase().indexOf(term);\n" +
+        "        \n" +
+        "        if (index >= 0) {\n" +
+        "          var span = document.createElement('span');\n" +
+        "          span.className = 'search-highlight';\n" +
+        "          \n" +
+        "          var before = document.createTextNode(text.substring(0, index));\n" +
+        "          span.textContent = text.substring(index, index + term.length);\n" +
+        "          var after = document.createTextNode(text.substring(index + term.length));\n" +
+        "          \n" +
+        "          var parent = node.parentNode;\n" +
+        "          parent.insertBefore(before, node);\n" +
+        "          parent.insertBefore(span, node);\n" +
+        "          parent.insertBefore(after, node);\n" +
+        "          parent.removeChild(node);\n" +
+        "          \n" +
+        "          i += 2; // Skip the nodes we just inserted\n" +
+        "        }\n" +
+        "      } else if (node.nodeType === 1) { // Element node\n" +
+        "        // Skip script and style elements\n" +
+        "        if (node.tagName !== 'SCRIPT' && node.tagName !== 'STYLE') {\n" +
+        "          highlightText(node, term);\n" +
+        "        }\n" +
+        "      }\n" +
+        "    }\n" +
+        "  }\n" +
+        "});";
+
+    static final String OUTPUT_FILE_NAME = "consolidated-karate-report.html";
+    static final String CACHE_DIR_NAME = ".consolidated-karate-report-cache";
+    static final String PANES_DIR_NAME = "consolidated-karate-report-panes";
+    static final String PAGES_DIR_NAME = "consolidated-karate-report-pages";
+    static final String ASSETS_DIR_NAME = "consolidated-karate-report-assets";
+    static final String STYLESHEET_NAME = "report.css";
+    static final String GZIP_SUFFIX = ".gz";
+    static final String SUMMARY_FILE_NAME = "karate-summary.html";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Additional styling for the consolidated report
+    private static final String ADDITIONAL_CSS =
+        ".nav-tabs { margin-bottom: 20px; border-bottom: 1px solid #ddd; }" +
+        ".nav-tabs > li { display: inline-block; margin-bottom: -1px; }" +
+        ".nav-tabs > li > a { display: block; padding: 10px 15px; border: 1px solid transparent; border-radius: 4px 4px 0 0; text-decoration: none; }" +
+        ".nav-tabs > li.active > a { color: #555; background-color: #fff; border: 1px solid #ddd; border-bottom-color: transparent; }" +
+        ".tab-content > .tab-pane { display: none; }" +
+        ".tab-content > .active { display: block; }" +
+        "#search-box { margin: 20px 0; padding: 10px; }" +
+        "#search-input { padding: 8px; width: 300px; }" +
+        ".feature-link { margin-bottom: 5px; padding: 5px; display: block; }" +
+        ".search-highlight { background-color: yellow; }";
+
+    private static final String ACTIVE_TAB = " class=\"active\"";
+    private static final String ACTIVE_PANE = " active";
+
+    // Markup is compiled once into UTF-8 chunks; see HtmlTemplate for the placeholder syntax
+    private static final HtmlTemplate HEAD = HtmlTemplate.compile(
+        "<!DOCTYPE html>\n" +
+        "<html>\n" +
+        "<head>\n" +
+        "<meta charset=\"UTF-8\">\n" +
+        "<title>Consolidated Karate Report</title>\n");
+    private static final HtmlTemplate STYLE = HtmlTemplate.compile("<style>{{&css}}</style>\n");
+    private static final HtmlTemplate STYLESHEET_RULES = HtmlTemplate.compile("{{&css}}\n");
+    private static final HtmlTemplate STYLESHEET_LINK = HtmlTemplate.compile(
+        "<link rel=\"stylesheet\" href=\"" + ASSETS_DIR_NAME + "/" + STYLESHEET_NAME + "\">\n");
+    private static final HtmlTemplate BODY_START = HtmlTemplate.compile(
+        "</head>\n" +
+        "<body>\n" +
+        "<div id=\"summary\" class=\"container\">{{&summary}}</div>\n" +
+        "<div id=\"search-box\"><input type=\"text\" id=\"search-input\" placeholder=\"Search across all tests...\"></div>\n" +
+        "<div class=\"container\">\n");
+    private static final HtmlTemplate TABS_START = HtmlTemplate.compile("<ul class=\"nav-tabs\">\n");
+    private static final HtmlTemplate TAB = HtmlTemplate.compile(
+        "<li{{&active}}><a href=\"#{{name}}\" data-toggle=\"tab\">{{name}}</a></li>\n");
+    private static final HtmlTemplate TABS_END = HtmlTemplate.compile(
+        "</ul>\n" +
+        "<div class=\"tab-content\">\n");
+    private static final HtmlTemplate PANE = HtmlTemplate.compile(
+        "<div id=\"{{name}}\" class=\"tab-pane{{&active}}\">{{&content}}</div>\n");
+    private static final HtmlTemplate LAZY_PANE = HtmlTemplate.compile(
+        "<div id=\"{{name}}\" class=\"tab-pane{{&active}}\" data-pane=\"{{index}}\"></div>\n");
+    private static final HtmlTemplate EMBEDDED_PANE = HtmlTemplate.compile(
+        "<div id=\"{{name}}\" class=\"tab-pane{{&active}}\" data-pane=\"{{index}}\">" +
+        "<script type=\"application/gzip;base64\" class=\"pane-payload\">{{&payload}}</script></div>\n");
+    private static final HtmlTemplate FEATURE_LINKS_START = HtmlTemplate.compile("<div class=\"feature-links\">\n");
+    private static final HtmlTemplate FEATURE_LINK = HtmlTemplate.compile(
+        "<a class=\"feature-link\" href=\"" + PAGES_DIR_NAME + "/{{page}}\">{{name}}</a>\n");
+    private static final HtmlTemplate SECTION_END = HtmlTemplate.compile(
+        "</div>\n" +
+        "</div>\n");
+    private static final HtmlTemplate SEARCH_INDEX_START = HtmlTemplate.compile(
+        "<script type=\"application/json\" id=\"" + SearchIndex.ELEMENT_ID + "\">");
+    private static final HtmlTemplate TABS_SCRIPTS = HtmlTemplate.compile(
+        "</script>\n" +
+        "<script>" + SearchIndex.QUERY_ENGINE_JS + "</script>\n" +
+        "<script>" + TABS_JS + "</script>\n");
+    private static final HtmlTemplate FEATURE_LINKS_SCRIPTS = HtmlTemplate.compile(
+        "</script>\n" +
+        "<script>" + SearchIndex.QUERY_ENGINE_JS + "</script>\n" +
+        "<script>" + FEATURE_LINKS_JS + "</script>\n");
+    private static final HtmlTemplate LAZY_PANES_SCRIPT = HtmlTemplate.compile(
+        "<script>" + GzipBase64.INFLATE_FUNCTION_JS + LAZY_PANES_JS + "</script>\n");
+    private static final HtmlTemplate END = HtmlTemplate.compile(
+        "</body>\n" +
+        "</html>\n");
+    private static final HtmlTemplate PAGE = HtmlTemplate.compile(
+        "<!DOCTYPE html>\n" +
+        "<html>\n" +
+        "<head>\n" +
+        "<meta charset=\"UTF-8\">\n" +
+        "<title>{{title}}</title>\n" +
+        "<link rel=\"stylesheet\" href=\"../" + ASSETS_DIR_NAME + "/" + STYLESHEET_NAME + "\">\n" +
+        "</head>\n" +
+        "<body>\n" +
+        "<p><a href=\"../" + OUTPUT_FILE_NAME + "\">Consolidated Karate Report</a></p>\n" +
+        "{{&content}}\n" +
+        "</body>\n" +
+        "</html>\n");
+
+    /** How feature content is placed into the consolidated report. */
+    public enum PaneMode {
+        /** Every feature container is part of the document, as in a plain HTML report. */
+        INLINE,
+        /** Each feature is embedded as a gzip+base64 script block and inflated when its tab is opened. */
+        EMBEDDED,
+        /** Each feature is written to its own script file next to the report and loaded when its tab is opened. */
+        SIDECAR
+    }
+
+    public static class Options {
+        
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int maxPendingReports;
+        private boolean fragmentCache = true;
+        private PaneMode paneMode = PaneMode.INLINE;
+        private boolean gzipOutput;
+        private ReportMetrics metrics = ReportMetrics.DISABLED;
+        private OutputLayout layout = OutputLayout.AUTO;
+        private int shardThreshold = 1000;
+        private long debounceMillis = 300;
+        
+        /** Number of worker threads parsing feature reports. */
+        public Options parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+        
+        /** Upper bound on parsed reports waiting for the assembler, which caps how many are held in memory. */
+        public Options maxPendingReports(int maxPendingReports) {
+            if (maxPendingReports < 1) {
+                throw new IllegalArgumentException("maxPendingReports must be at least 1: " + maxPendingReports);
+            }
+            this.maxPendingReports = maxPendingReports;
+            return this;
+        }
+        
+        /** Reuse containers extracted by earlier runs for reports whose size and modification time are unchanged. */
+        public Options fragmentCache(boolean fragmentCache) {
+            this.fragmentCache = fragmentCache;
+            return this;
+        }
+        
+        /** Whether feature panes are inlined or loaded lazily from compressed payloads. */
+        public Options paneMode(PaneMode paneMode) {
+            this.paneMode = paneMode;
+            return this;
+        }
+        
+        /** Also write a gzip-compressed copy of the report, compressed on its own thread while the report is written. */
+        public Options gzipOutput(boolean gzipOutput) {
+            this.gzipOutput = gzipOutput;
+            return this;
+        }
+        
+        /** Record timings and I/O counters of the consolidation in the given metrics. */
+        public Options metrics(ReportMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+        
+        /** One document, a page per feature linked from an index, or pages only above the shard threshold (the default). */
+        public Options layout(OutputLayout layout) {
+            this.layout = layout;
+            return this;
+        }
+        
+        /** Number of feature reports above which the {@link OutputLayout#AUTO} layout writes a page per feature. */
+        public Options shardThreshold(int shardThreshold) {
+            this.shardThreshold = shardThreshold;
+            return this;
+        }
+        
+        /** Quiet period a {@link KarateReportWatcher} waits for after the last change before consolidating. */
+        public Options debounceMillis(long debounceMillis) {
+            if (debounceMillis < 0) {
+                throw new IllegalArgumentException("debounceMillis must not be negative: " + debounceMillis);
+            }
+            this.debounceMillis = debounceMillis;
+            return this;
+        }
+        
+        long debounceMillis() {
+            return debounceMillis;
+        }
+        
+        boolean sharded(int reportCount) {
+            return layout == OutputLayout.SHARDED || (layout == OutputLayout.AUTO && reportCount > shardThreshold);
+        }
+        
+        int pendingLimit() {
+            return maxPendingReports > 0 ? maxPendingReports : 2 * parallelism;
+        }
+    }
+
+    public static void consolidateReports(String karateReportsDir) throws IOException {
+        consolidateReports(karateReportsDir, new Options());
+    }
+
+    public static void consolidateReports(String karateReportsDir, Options options) throws IOException {
+        Path reportsRoot = Paths.get(karateReportsDir);
+        FragmentCache cache = options.fragmentCache ? FragmentCache.open(reportsRoot.resolve(CACHE_DIR_NAME)) : null;
+        consolidate(reportsRoot, cache, options);
+    }
+
+    /** Consolidates the reports under the directory, reusing and refreshing the given cache if there is one. */
+    static void consolidate(Path reportsRoot, FragmentCache cache, Options options) throws IOException {
+        ReportMetrics metrics = options.metrics;
+        List<Path> reportFiles = featureReports(reportsRoot, metrics);
+        
+        // Large runs get a page per feature, which replaces the panes. Pages and panes of the last
+        // report are only pruned once the new report has replaced it, so it never links to missing files.
+        boolean sharded = options.sharded(reportFiles.size());
+        if (sharded) {
+            Files.createDirectories(reportsRoot.resolve(PAGES_DIR_NAME));
+            Files.createDirectories(reportsRoot.resolve(ASSETS_DIR_NAME));
+        } else if (options.paneMode == PaneMode.SIDECAR) {
+            Files.createDirectories(reportsRoot.resolve(PANES_DIR_NAME));
+        }
+        
+        // Feature reports are parsed on the worker pool while the summary and layout are built here
+        ExecutorService parser = new ForkJoinPool(options.parallelism);
+        try {
+            assemble(reportsRoot, reportFiles, parser, cache, sharded, options);
+        } finally {
+            parser.shutdownNow();
+        }
+        
+        if (cache != null) {
+            saveCache(reportsRoot, reportFiles, cache);
+        }
+        
+        Path outputPath = reportsRoot.resolve(OUTPUT_FILE_NAME);
+        metrics.publish(outputPath);
+        logger.info("Consolidated report created: {}", outputPath);
+    }
+    
+    /**
+     * Brings the cache up to date with the feature reports under the directory without writing a
+     * report: reports that were added or changed are parsed, and those that are gone are evicted.
+     * Lets the watcher extract reports as shards write them, before the summary exists.
+     */
+    static void extractFragments(Path reportsRoot, FragmentCache cache, Options options) throws IOException {
+        ReportMetrics metrics = options.metrics;
+        List<Path> reportFiles = featureReports(reportsRoot, metrics);
+        ExecutorService parser = new ForkJoinPool(options.parallelism);
+        try {
+            Deque<Future<FragmentCache.Fragment>> pending = new ArrayDeque<>();
+            for (Path reportPath : reportFiles) {
+                if (pending.size() == options.pendingLimit()) {
+                    await(pending.poll());
+                }
+                pending.add(parser.submit(() -> fragment(reportsRoot, reportPath, cache, metrics)));
+            }
+            while (!pending.isEmpty()) {
+                await(pending.poll());
+            }
+        } finally {
+            parser.shutdownNow();
+        }
+        saveCache(reportsRoot, reportFiles, cache);
+    }
+    
+    /** Returns all HTML report files, skipping the summary and any earlier consolidated output. */
+    private static List<Path> featureReports(Path reportsRoot, ReportMetrics metrics) throws IOException {
+        long walkStart = metrics.start();
+        try (Stream<Path> paths = Files.walk(reportsRoot)) {
+            return paths
+                    .filter(path -> isFeatureReport(reportsRoot, path))
+                    .collect(Collectors.toList());
+        } finally {
+            metrics.stop(ReportMetrics.Phase.WALK, walkStart);
+        }
+    }
+    
+    /** Evicts reports that are no longer among the feature reports and persists the cache. */
+    private static void saveCache(Path reportsRoot, List<Path> reportFiles, FragmentCache cache) throws IOException {
+        Set<String> livePaths = new HashSet<>();
+        for (Path reportPath : reportFiles) {
+            livePaths.add(cacheKey(reportsRoot, reportPath));
+        }
+        cache.save(livePaths);
+    }
+
+    /** Whether the file is a feature report to consolidate, as opposed to the summary or consolidated output. */
+    static boolean isFeatureReport(Path reportsRoot, Path path) {
+        return path.toString().endsWith(".html") && !path.getFileName().toString().equals(SUMMARY_FILE_NAME)
+                && !path.equals(reportsRoot.resolve(OUTPUT_FILE_NAME))
+                && !path.startsWith(reportsRoot.resolve(PAGES_DIR_NAME));
+    }
+
+    private static void assemble(Path reportsRoot, List<Path> reportFiles, ExecutorService parser,
+                                 FragmentCache cache, boolean sharded, Options options) throws IOException {
+        // Start parsing the first feature reports before touching the summary
+        ReportMetrics metrics = options.metrics;
+        // Rendering is the assembler's time less what it spends parsing, waiting for workers and writing
+        long renderStart = metrics.start();
+        long writeNanos = metrics.phaseNanos(ReportMetrics.Phase.WRITE);
+        long notRendering = 0;
+        Deque<Future<FeaturePane>> pending = new ArrayDeque<>();
+        int submitted = 0;
+        while (submitted < reportFiles.size() && pending.size() < options.pendingLimit()) {
+            pending.add(submitExtraction(parser, reportsRoot, reportFiles.get(submitted), submitted++, cache, sharded, options));
+        }
+
+        // Parse the summary report first
+        Path summaryPath = reportsRoot.resolve(SUMMARY_FILE_NAME);
+        long parseStart = metrics.start();
+        Document summaryDoc = Jsoup.parse(new File(summaryPath.toString()), "UTF-8");
+        summaryDoc.outputSettings().prettyPrint(false);
+        notRendering += metrics.stop(ReportMetrics.Phase.PARSE, parseStart);
+        if (metrics.enabled()) {
+            metrics.fileRead(Files.size(summaryPath));
+        }
+
+        // The report is rendered straight into a temporary file as the feature panes arrive, then renamed over the last one
+        Path outputPath = reportsRoot.resolve(OUTPUT_FILE_NAME);
+        Path gzipPath = reportsRoot.resolve(OUTPUT_FILE_NAME + GZIP_SUFFIX);
+        OutputStream file = metrics.meter(Channels.newOutputStream(FileChannel.open(tempFile(outputPath),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)));
+        try {
+            OutputStream out = options.gzipOutput
+                    ? new GzipTeeOutputStream(file, metrics.meter(Files.newOutputStream(tempFile(gzipPath))))
+                    : file;
+            try (HtmlOutput html = SingleFileHtmlReporter.openWriter(out)) {
+                HEAD.render(html);
+
+                // Copy styles from summary, into a stylesheet shared with the feature pages when sharded
+                Elements styles = summaryDoc.select("style");
+                if (sharded) {
+                    Path stylesheet = reportsRoot.resolve(ASSETS_DIR_NAME).resolve(STYLESHEET_NAME);
+                    try (HtmlOutput css = SingleFileHtmlReporter.openWriter(metrics.meter(Files.newOutputStream(stylesheet)))) {
+                        for (Element style : styles) {
+                            STYLESHEET_RULES.render(css, style.data());
+                        }
+                        STYLESHEET_RULES.render(css, ADDITIONAL_CSS);
+                    }
+                    STYLESHEET_LINK.render(html);
+                } else {
+                    for (Element style : styles) {
+                        STYLE.render(html, style.data());
+                    }
+                    STYLE.render(html, ADDITIONAL_CSS);
+                }
+
+                // Copy the summary content
+                Element summaryContent = summaryDoc.select("div.container").first();
+                BODY_START.render(html, summaryContent == null ? null : summaryContent.outerHtml());
+
+                // Tabs, or links to the feature pages, are named after the report files and can go out before any pane
+                List<String> featureNames = new ArrayList<>();
+                for (Path reportPath : reportFiles) {
+                    featureNames.add(reportPath.getFileName().toString().replace(".html", ""));
+                }
+                if (sharded) {
+                    FEATURE_LINKS_START.render(html);
+                    for (int i = 0; i < featureNames.size(); i++) {
+                        FEATURE_LINK.render(html, pageFileName(i), featureNames.get(i));
+                    }
+                } else {
+                    TABS_START.render(html);
+                    for (int i = 0; i < featureNames.size(); i++) {
+                        TAB.render(html, i == 0 ? ACTIVE_TAB : null, featureNames.get(i));
+                    }
+                    TABS_END.render(html);
+                }
+
+                // Process each feature report in walk order, keeping the parse window full
+                SearchIndex searchIndex = new SearchIndex();
+                for (int i = 0; i < reportFiles.size(); i++) {
+                    String featureName = featureNames.get(i);
+
+                    long waitStart = metrics.start();
+                    FeaturePane featurePane = await(pending.poll());
+                    if (metrics.enabled()) {
+                        notRendering += System.nanoTime() - waitStart;
+                    }
+                    if (submitted < reportFiles.size()) {
+                        pending.add(submitExtraction(parser, reportsRoot, reportFiles.get(submitted), submitted++, cache, sharded, options));
+                    }
+                    // Search documents are the feature panes, numbered in tab order
+                    searchIndex.add(searchIndex.newDocument(), featureName + " " + featurePane.terms);
+                    if (sharded) {
+                        // The worker has written the feature's page
+                        continue;
+                    }
+
+                    // Include the feature content extracted by the worker, or a reference to its payload
+                    String active = i == 0 ? ACTIVE_PANE : null;
+                    if (!featurePane.lazy) {
+                        PANE.render(html, featureName, active, featurePane.content);
+                    } else if (featurePane.payload != null) {
+                        EMBEDDED_PANE.render(html, featureName, active, i, featurePane.payload);
+                    } else {
+                        LAZY_PANE.render(html, featureName, active, i);
+                    }
+                }
+                SECTION_END.render(html);
+
+                // Embed the search index and the engine that queries it, then the tab switching and search
+                SEARCH_INDEX_START.render(html);
+                searchIndex.writeJson(html);
+                (sharded ? FEATURE_LINKS_SCRIPTS : TABS_SCRIPTS).render(html);
+                if (!sharded && options.paneMode != PaneMode.INLINE) {
+                    LAZY_PANES_SCRIPT.render(html, PANES_DIR_NAME);
+                }
+                END.render(html);
+            }
+            if (options.gzipOutput) {
+                replace(gzipPath);
+            }
+            replace(outputPath);
+        } catch (IOException | RuntimeException e) {
+            // The last complete report stays in place, with no partial one left next to it
+            discard(e, file, outputPath, gzipPath);
+            throw e;
+        }
+        removeStaleOutput(reportsRoot, reportFiles.size(), sharded, options);
+
+        if (metrics.enabled()) {
+            long writing = metrics.phaseNanos(ReportMetrics.Phase.WRITE) - writeNanos;
+            metrics.add(ReportMetrics.Phase.RENDER, System.nanoTime() - renderStart - notRendering - writing);
+        }
+    }
+
+    private static Future<FeaturePane> submitExtraction(ExecutorService parser, Path reportsRoot, Path reportPath, int index,
+                                                        FragmentCache cache, boolean sharded, Options options) {
+        return parser.submit(() -> extractPane(reportsRoot, reportPath, index, cache, sharded, options));
+    }
+
+    private static FeaturePane extractPane(Path reportsRoot, Path reportPath, int index, FragmentCache cache,
+                                           boolean sharded, Options options) throws IOException {
+        boolean inline = !sharded && options.paneMode == PaneMode.INLINE;
+        ReportMetrics metrics = options.metrics;
+        FragmentCache.Fragment fragment = fragment(reportsRoot, reportPath, cache, metrics);
+        long extractStart = metrics.start();
+        try {
+            if (sharded) {
+                writePage(reportsRoot, reportPath, index, fragment.html, metrics);
+                return new FeaturePane(null, true, null, fragment.terms);
+            }
+            if (inline || fragment.html.isEmpty()) {
+                return new FeaturePane(fragment.html, false, null, fragment.terms);
+            }
+            String payload = GzipBase64.encode(fragment.html);
+            metrics.buffer(fragment.html.length());
+            if (options.paneMode == PaneMode.SIDECAR) {
+                Path sidecar = reportsRoot.resolve(PANES_DIR_NAME).resolve(index + ".js");
+                byte[] script = ("karatePaneLoaded(" + index + ", '" + payload + "');\n").getBytes(StandardCharsets.US_ASCII);
+                Files.write(tempFile(sidecar), script);
+                replace(sidecar);
+                metrics.fileWritten(script.length);
+                return new FeaturePane(null, true, null, fragment.terms);
+            }
+            return new FeaturePane(null, true, payload, fragment.terms);
+        } finally {
+            // Parsing and serializing time is excluded by moving the start forward
+            metrics.stop(ReportMetrics.Phase.EXTRACT, extractStart);
+        }
+    }
+
+    /**
+     * Returns the report's container and search terms from the cache, if there is one and it holds
+     * the report as it is now, or else parses them and stores them in the cache.
+     */
+    private static FragmentCache.Fragment fragment(Path reportsRoot, Path reportPath, FragmentCache cache,
+                                                   ReportMetrics metrics) throws IOException {
+        BasicFileAttributes attrs = null;
+        String key = null;
+        if (cache != null) {
+            attrs = Files.readAttributes(reportPath, BasicFileAttributes.class);
+            key = cacheKey(reportsRoot, reportPath);
+            FragmentCache.Fragment fragment = cache.get(key, attrs);
+            if (fragment != null) {
+                return fragment;
+            }
+        }
+        if (metrics.enabled()) {
+            // The scanner holds the whole file in memory
+            long size = Files.size(reportPath);
+            metrics.fileRead(size);
+            metrics.buffer(size);
+        }
+        long parseStart = metrics.start();
+        Element featureContent = parseContainer(reportPath);
+        metrics.stop(ReportMetrics.Phase.PARSE, parseStart);
+        FragmentCache.Fragment fragment = FragmentCache.Fragment.NONE;
+        if (featureContent != null) {
+            long termsStart = metrics.start();
+            String terms = SearchIndex.distinctTerms(featureContent.text());
+            metrics.stop(ReportMetrics.Phase.EXTRACT, termsStart);
+            // Serializing here keeps it off the assembler, which only copies the markup into the report
+            long serializeStart = metrics.start();
+            String html = featureContent.outerHtml();
+            metrics.stop(ReportMetrics.Phase.SERIALIZE, serializeStart);
+            fragment = new FragmentCache.Fragment(html, terms);
+            // Detach so the rest of the source document can be collected straight away
+            featureContent.remove();
+        }
+        if (cache != null) {
+            cache.put(key, attrs, featureContent == null ? null : fragment);
+        }
+        return fragment;
+    }
+
+    /** Writes a feature's container as a page of its own, styled by the shared stylesheet. */
+    private static void writePage(Path reportsRoot, Path reportPath, int index, String containerHtml, ReportMetrics metrics) throws IOException {
+        Path page = reportsRoot.resolve(PAGES_DIR_NAME).resolve(pageFileName(index));
+        try (HtmlOutput html = SingleFileHtmlReporter.openWriter(metrics.meter(Files.newOutputStream(tempFile(page))))) {
+            PAGE.render(html, reportPath.getFileName().toString().replace(".html", ""), containerHtml);
+        }
+        replace(page);
+    }
+
+    static Path tempFile(Path target) {
+        return target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+    }
+
+    /** Closes the output of a report that failed part way and deletes the temporary files of the given targets. */
+    static void discard(Exception failure, OutputStream out, Path... targets) {
+        try {
+            out.close();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+        for (Path target : targets) {
+            try {
+                Files.deleteIfExists(tempFile(target));
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /** Moves the finished temporary file over the target, so readers see either the old file or the new one. */
+    static void replace(Path target) throws IOException {
+        Files.move(tempFile(target), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Deletes what the report just written no longer links to: pages and panes beyond this run's
+     * features, and the output of an earlier run with another layout, pane mode or gzip setting.
+     */
+    private static void removeStaleOutput(Path reportsRoot, int reportCount, boolean sharded, Options options) throws IOException {
+        Set<String> current = new HashSet<>();
+        for (int i = 0; i < reportCount; i++) {
+            current.add(sharded ? pageFileName(i) : i + ".js");
+        }
+        if (sharded) {
+            pruneOutputDir(reportsRoot.resolve(PAGES_DIR_NAME), current);
+        } else {
+            deleteRecursively(reportsRoot.resolve(PAGES_DIR_NAME));
+            deleteRecursively(reportsRoot.resolve(ASSETS_DIR_NAME));
+        }
+        if (!sharded && options.paneMode == PaneMode.SIDECAR) {
+            pruneOutputDir(reportsRoot.resolve(PANES_DIR_NAME), current);
+        } else {
+            deleteRecursively(reportsRoot.resolve(PANES_DIR_NAME));
+        }
+        if (!options.gzipOutput) {
+            Files.deleteIfExists(reportsRoot.resolve(OUTPUT_FILE_NAME + GZIP_SUFFIX));
+        }
+    }
+
+    private static String pageFileName(int index) {
+        return index + ".html";
+    }
+
+    private static Element parseContainer(Path reportPath) throws IOException {
+        // Only the container is parsed when the scanner can find its bounds; anything else gets a full parse
+        String containerHtml = ContainerScanner.extractContainer(reportPath);
+        if (containerHtml != null) {
+            Document fragmentDoc = Jsoup.parseBodyFragment(containerHtml);
+            fragmentDoc.outputSettings().prettyPrint(false);
+            Element featureContent = fragmentDoc.body().children().first();
+            if (featureContent != null && fragmentDoc.body().childrenSize() == 1 && featureContent.is("div.container")) {
+                return featureContent;
+            }
+        }
+        Document featureDoc = Jsoup.parse(new File(reportPath.toString()), "UTF-8");
+        // Serialize the exact parse tree rather than the pretty-printed form so cached and lazy panes render identically
+        featureDoc.outputSettings().prettyPrint(false);
+        return featureDoc.select("div.container").first();
+    }
+
+    /** Deletes the files and subdirectories of the directory that are not among the given names, as an earlier, larger run leaves them. */
+    static void pruneOutputDir(Path dir, Set<String> keep) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> entries = Files.list(dir)) {
+            for (Path path : (Iterable<Path>) entries::iterator) {
+                if (!keep.contains(path.getFileName().toString())) {
+                    deleteRecursively(path);
+                }
+            }
+        }
+    }
+
+    /** Deletes the file, or the directory and everything below it; a path that does not exist is left alone. */
+    static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static String cacheKey(Path reportsRoot, Path reportPath) {
+        return reportsRoot.relativize(reportPath).toString().replace(File.separatorChar, '/');
+    }
+
+    private static final class FeaturePane {
+        /** Container markup to place in the document, for panes that are not lazy; empty if the report has none. */
+        final String content;
+        /** Whether the content lives outside the document, filled in by the browser or on a page of its own. */
+        final boolean lazy;
+        /** Compressed container for embedded panes; null when it lives in a sidecar file. */
+        final String payload;
+        /** Distinct search terms of the container text. */
+        final String terms;
+
+        FeaturePane(String content, boolean lazy, String payload, String terms) {
+            this.content = content;
+            this.lazy = lazy;
+            this.payload = payload;
+            this.terms = terms;
+        }
+    }
+
+    /** Waits for a worker's result, rethrowing its failure as the exception the task threw. */
+    static <T> T await(Future<T> extraction) throws IOException {
+        try {
+            return extraction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a report to be parsed");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to parse report", cause);
+        }
+    }
+}
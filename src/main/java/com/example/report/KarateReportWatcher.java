@@ -0,0 +1,188 @@
+package com.example.report;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the consolidated report up to date while shards are still writing their Karate reports.
+ * The reports directory and every directory below it are watched; once feature reports or the
+ * summary stop changing for the debounce delay, reports that were added or changed are parsed
+ * and their containers kept in memory, and, if the summary has been written, the report is
+ * consolidated from them and replaces the previous one with an atomic rename. Closing the
+ * watcher consolidates any changes still waiting for the delay.
+ *
+ * <pre>
+ * try (KarateReportWatcher watcher = KarateReportWatcher.start("target/karate-reports", new KarateReportConsolidator.Options())) {
+ *     runShards();
+ * }
+ * </pre>
+ */
+public class KarateReportWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(KarateReportWatcher.class);
+
+    private final Path reportsRoot;
+    private final KarateReportConsolidator.Options options;
+    private final FragmentCache cache = FragmentCache.inMemory();
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private final Thread thread;
+
+    // Owned by the watcher thread until it has been joined
+    private boolean dirty;
+    private long lastChangeNanos;
+
+    private KarateReportWatcher(Path reportsRoot, KarateReportConsolidator.Options options) throws IOException {
+        this.reportsRoot = reportsRoot;
+        this.options = options;
+        this.watchService = reportsRoot.getFileSystem().newWatchService();
+        this.thread = new Thread(this::run, "karate-report-watcher");
+        thread.setDaemon(true);
+    }
+
+    /** Starts watching the directory, consolidating straight away if it already holds a summary. */
+    public static KarateReportWatcher start(String karateReportsDir, KarateReportConsolidator.Options options) throws IOException {
+        Path reportsRoot = Paths.get(karateReportsDir);
+        Files.createDirectories(reportsRoot);
+        KarateReportWatcher watcher = new KarateReportWatcher(reportsRoot, options);
+        try {
+            watcher.registerAll(reportsRoot);
+        } catch (IOException e) {
+            watcher.watchService.close();
+            throw e;
+        }
+        watcher.changed();
+        watcher.thread.start();
+        logger.info("Watching {} for Karate reports", reportsRoot);
+        return watcher;
+    }
+
+    /** Stops watching, then consolidates changes that were still waiting for the debounce delay. */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (dirty) {
+            consolidate();
+        }
+    }
+
+    private void run() {
+        long debounceNanos = TimeUnit.MILLISECONDS.toNanos(options.debounceMillis());
+        try {
+            while (true) {
+                WatchKey key;
+                if (!dirty) {
+                    key = watchService.take();
+                } else {
+                    long remaining = lastChangeNanos + debounceNanos - System.nanoTime();
+                    key = remaining > 0 ? watchService.poll(remaining, TimeUnit.NANOSECONDS) : watchService.poll();
+                }
+                if (key != null) {
+                    handle(key);
+                } else if (System.nanoTime() - lastChangeNanos >= debounceNanos) {
+                    consolidate();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Closed by close(), which takes over any pending consolidation
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handle(WatchKey key) {
+        Path dir = watchedDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed();
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                if (!isOutputDir(path)) {
+                    // A new shard directory may hold reports written before it was registered
+                    try {
+                        registerAll(path);
+                    } catch (IOException e) {
+                        logger.warn("Failed to watch {}", path, e);
+                    }
+                    changed();
+                }
+            } else if (KarateReportConsolidator.isFeatureReport(reportsRoot, path)
+                    || path.equals(reportsRoot.resolve(KarateReportConsolidator.SUMMARY_FILE_NAME))) {
+                changed();
+            }
+        }
+        if (!key.reset()) {
+            watchedDirs.remove(key);
+        }
+    }
+
+    private void changed() {
+        dirty = true;
+        lastChangeNanos = System.nanoTime();
+    }
+
+    private void consolidate() {
+        dirty = false;
+        try {
+            // Reports are extracted as they settle, so the final consolidation only has to assemble them
+            KarateReportConsolidator.extractFragments(reportsRoot, cache, options);
+            // The summary is written at the end of a run, so there is no report to emit before it exists
+            if (!Files.exists(reportsRoot.resolve(KarateReportConsolidator.SUMMARY_FILE_NAME))) {
+                logger.debug("No summary in {} yet", reportsRoot);
+                return;
+            }
+            KarateReportConsolidator.consolidate(reportsRoot, cache, options);
+        } catch (IOException | RuntimeException e) {
+            // A report caught half written is parsed again on its next change
+            logger.error("Failed to consolidate the reports in {}", reportsRoot, e);
+        }
+    }
+
+    /** Watches the directory and every directory below it, apart from the consolidator's own output. */
+    private void registerAll(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs) throws IOException {
+                if (isOutputDir(path)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirs.put(key, path);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private boolean isOutputDir(Path path) {
+        return path.startsWith(reportsRoot.resolve(KarateReportConsolidator.CACHE_DIR_NAME))
+                || path.startsWith(reportsRoot.resolve(KarateReportConsolidator.PANES_DIR_NAME))
+                || path.startsWith(reportsRoot.resolve(KarateReportConsolidator.PAGES_DIR_NAME))
+                || path.startsWith(reportsRoot.resolve(KarateReportConsolidator.ASSETS_DIR_NAME));
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.report;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.intuit.karate.core.FeatureResult;
+import com.intuit.karate.core.ScenarioResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Merges the Karate JSON results of several parallel shards into one report rendered by
+ * {@link SingleFileHtmlReporter}, without scraping Karate's HTML. Each shard directory is
+ * searched for the per-feature {@code *.karate-json.txt} files Karate writes next to its
+ * HTML reports, which are read with a streaming parser. A shard that has none falls back to
+ * scraping its feature HTML reports into the same report and totals; only a shard with
+ * neither fails the merge, naming every such shard rather than leaving them out.
+ *
+ * <p>Shards run in parallel, so the summary reports the wall time of the longest shard next to
+ * the duration summed over every feature.
+ */
+public class KarateResultMerger {
+
+    private static final Logger logger = LoggerFactory.getLogger(KarateResultMerger.class);
+
+    static final String KARATE_JSON_SUFFIX = ".karate-json.txt";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public static void mergeShards(List<Path> shardDirs) throws IOException {
+        mergeShards(shardDirs, Paths.get(SingleFileHtmlReporter.REPORT_DIR, SingleFileHtmlReporter.REPORT_FILE_NAME),
+                Runtime.getRuntime().availableProcessors(), new SingleFileHtmlReporter.Options());
+    }
+
+    /**
+     * Merges the shards into the given report file. Feature results are parsed on
+     * {@code parallelism} workers and rendered in shard order, then by file name, and only a
+     * bounded window of them is held in memory at any time.
+     *
+     * @throws IOException if a shard has neither JSON results nor feature reports, before anything is written
+     */
+    public static void mergeShards(List<Path> shardDirs, Path outputFile, int parallelism,
+                                   SingleFileHtmlReporter.Options options) throws IOException {
+        ReportMetrics metrics = options.metrics;
+        List<Path> resultFiles = new ArrayList<>();
+        List<Integer> resultShards = new ArrayList<>();
+        List<Path> missingShards = new ArrayList<>();
+        for (int shard = 0; shard < shardDirs.size(); shard++) {
+            Path shardDir = shardDirs.get(shard);
+            long walkStart = metrics.start();
+            List<Path> shardResults = findResultFiles(shardDir);
+            if (shardResults.isEmpty()) {
+                shardResults = findFeatureReports(shardDir);
+                if (shardResults.isEmpty()) {
+                    missingShards.add(shardDir);
+                } else {
+                    logger.warn("No {} results in {}, merging its {} HTML reports instead", KARATE_JSON_SUFFIX, shardDir,
+                            shardResults.size());
+                }
+            }
+            metrics.stop(ReportMetrics.Phase.WALK, walkStart);
+            for (Path resultFile : shardResults) {
+                resultFiles.add(resultFile);
+                resultShards.add(shard);
+            }
+        }
+        if (!missingShards.isEmpty()) {
+            // A shard missing from the totals would make the merged report look green, so nothing is written
+            throw new IOException("No " + KARATE_JSON_SUFFIX + " results or feature reports in " + missingShards.size()
+                    + " of " + shardDirs.size() + " shards, not merging: " + missingShards);
+        }
+
+        Path reportDir = outputFile.toAbsolutePath().getParent();
+        Files.createDirectories(reportDir);
+
+        // Features are rendered to a side file first since the summary above them needs the totals
+        Path featuresFile = Files.createTempFile(reportDir, ".karate-report", ".part");
+        try {
+            ReportContext context = new ReportContext(options);
+            Totals totals = new Totals(shardDirs.size());
+            TrendStore trendStore = SingleFileHtmlReporter.openTrendStore(options);
+            ExecutorService parser = new ForkJoinPool(parallelism);
+            try (HtmlOutput html = SingleFileHtmlReporter.openWriter(Files.newOutputStream(featuresFile))) {
+                // Each result file is either Karate JSON or, for a shard without any, a feature report
+                Deque<Future<?>> pending = new ArrayDeque<>();
+                int submitted = 0;
+                for (int i = 0; i < resultFiles.size(); i++) {
+                    while (submitted < resultFiles.size() && pending.size() < 2 * parallelism) {
+                        Path resultFile = resultFiles.get(submitted);
+                        Path shardDir = shardDirs.get(resultShards.get(submitted++));
+                        pending.add(isKarateJson(resultFile)
+                                ? parser.submit(() -> readFeatureResult(resultFile, metrics))
+                                : parser.submit(() -> readFeatureReport(shardDir, resultFile, metrics)));
+                    }
+                    Object result = KarateReportConsolidator.await(pending.poll());
+                    long renderStart = metrics.start();
+                    if (result instanceof FeatureResult) {
+                        FeatureResult featureResult = (FeatureResult) result;
+                        totals.add(resultShards.get(i), featureResult);
+                        if (trendStore != null) {
+                            trendStore.record(featureResult);
+                        }
+                        SingleFileHtmlReporter.writeFeature(featureResult, html, context);
+                    } else {
+                        ScrapedFeature feature = (ScrapedFeature) result;
+                        totals.add(resultShards.get(i), feature);
+                        if (trendStore != null) {
+                            for (ScrapedFeature.ScrapedScenario scenario : feature.scenarios) {
+                                trendStore.record(feature.path + " :: " + scenario.name, scenario.durationNanos, scenario.failed);
+                            }
+                        }
+                        SingleFileHtmlReporter.writeScrapedFeature(feature, html, context);
+                    }
+                    metrics.stop(ReportMetrics.Phase.RENDER, renderStart);
+                }
+            } finally {
+                parser.shutdownNow();
+            }
+
+            try (OutputStream out = new BufferedOutputStream(metrics.meter(Files.newOutputStream(outputFile)), SingleFileHtmlReporter.WRITE_BUFFER_SIZE);
+                 HtmlOutput html = SingleFileHtmlReporter.openWriter(out)) {
+                SingleFileHtmlReporter.writeHeader(html);
+                SingleFileHtmlReporter.writeMergedSummary(html, totals.features, totals.scenarios, totals.passed, totals.failed,
+                        shardDirs.size(), totals.wallNanos(), totals.durationNanos);
+                if (trendStore != null) {
+                    SingleFileHtmlReporter.writeTrends(html, trendStore, options);
+                }
+                html.flush();
+                Files.copy(featuresFile, out);
+                SingleFileHtmlReporter.writeFooter(html, context);
+            }
+        } finally {
+            Files.deleteIfExists(featuresFile);
+        }
+        metrics.publish(outputFile);
+        logger.info("Merged report for {} shards generated at: {}", shardDirs.size(), outputFile.toAbsolutePath());
+    }
+
+    private static List<Path> findResultFiles(Path shardDir) throws IOException {
+        if (!Files.isDirectory(shardDir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> paths = Files.walk(shardDir)) {
+            return paths
+                    .filter(path -> path.getFileName().toString().endsWith(KARATE_JSON_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /** Returns the shard's feature reports, skipping Karate's summary, tag and timeline pages. */
+    private static List<Path> findFeatureReports(Path shardDir) throws IOException {
+        if (!Files.isDirectory(shardDir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> paths = Files.walk(shardDir)) {
+            return paths
+                    .filter(path -> KarateReportConsolidator.isFeatureReport(shardDir, path)
+                            && !path.getFileName().toString().startsWith("karate-"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isKarateJson(Path resultFile) {
+        return resultFile.getFileName().toString().endsWith(KARATE_JSON_SUFFIX);
+    }
+
+    /**
+     * Rebuilds a feature result the way Karate does for its own reports. The feature source is
+     * resolved against the working directory, so merging runs from the project checkout. The
+     * file is parsed token by token into the map Karate rebuilds the result from, without
+     * first reading it into a string.
+     */
+    private static FeatureResult readFeatureResult(Path resultFile, ReportMetrics metrics) throws IOException {
+        long start = metrics.start();
+        Map<String, Object> map;
+        try (InputStream in = Files.newInputStream(resultFile);
+             JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Not a Karate JSON result: " + resultFile);
+            }
+            map = readObject(parser);
+            metrics.fileRead(parser.currentLocation().getByteOffset());
+        }
+        FeatureResult featureResult = FeatureResult.fromKarateJson(new File("").getAbsoluteFile(), map);
+        metrics.stop(ReportMetrics.Phase.PARSE, start);
+        return featureResult;
+    }
+
+    /** Reads the object the parser is at, whose start token has been consumed, up to and including its end. */
+    private static Map<String, Object> readObject(JsonParser parser) throws IOException {
+        Map<String, Object> map = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            map.put(name, readValue(parser));
+        }
+        return map;
+    }
+
+    private static Object readValue(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                return readObject(parser);
+            case START_ARRAY:
+                List<Object> list = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(readValue(parser));
+                }
+                return list;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new IOException("Unexpected " + parser.currentToken() + " at " + parser.currentLocation());
+        }
+    }
+
+    private static ScrapedFeature readFeatureReport(Path shardDir, Path reportPath, ReportMetrics metrics) throws IOException {
+        if (metrics.enabled()) {
+            // The parser holds the whole document in memory
+            long size = Files.size(reportPath);
+            metrics.fileRead(size);
+            metrics.buffer(size);
+        }
+        long start = metrics.start();
+        ScrapedFeature feature = ScrapedFeature.parse(shardDir, reportPath);
+        metrics.stop(ReportMetrics.Phase.PARSE, start);
+        return feature;
+    }
+
+    private static final class Totals {
+        int features;
+        int scenarios;
+        int passed;
+        int failed;
+        long durationNanos;
+        /** Per shard: the earliest scenario start, the latest scenario end and the summed feature durations. */
+        final long[] shardStartMillis;
+        final long[] shardEndMillis;
+        final long[] shardDurationNanos;
+
+        Totals(int shards) {
+            shardStartMillis = new long[shards];
+            shardEndMillis = new long[shards];
+            shardDurationNanos = new long[shards];
+            Arrays.fill(shardStartMillis, Long.MAX_VALUE);
+        }
+
+        void add(int shard, FeatureResult featureResult) {
+            features++;
+            for (ScenarioResult scenarioResult : featureResult.getScenarioResults()) {
+                scenarios++;
+                if (scenarioResult.isFailed()) {
+                    failed++;
+                } else {
+                    passed++;
+                }
+                if (scenarioResult.getStartTime() > 0) {
+                    shardStartMillis[shard] = Math.min(shardStartMillis[shard], scenarioResult.getStartTime());
+                    shardEndMillis[shard] = Math.max(shardEndMillis[shard], scenarioResult.getEndTime());
+                }
+            }
+            long featureNanos = (long) (featureResult.getDurationMillis() * 1_000_000);
+            durationNanos += featureNanos;
+            shardDurationNanos[shard] += featureNanos;
+        }
+
+        /** Adds a scraped feature, whose report has durations but no timestamps. */
+        void add(int shard, ScrapedFeature feature) {
+            features++;
+            for (ScrapedFeature.ScrapedScenario scenario : feature.scenarios) {
+                scenarios++;
+                if (scenario.failed) {
+                    failed++;
+                } else {
+                    passed++;
+                }
+                durationNanos += scenario.durationNanos;
+                shardDurationNanos[shard] += scenario.durationNanos;
+            }
+        }
+
+        /**
+         * The longest shard's wall time, from its first scenario start to its last scenario end,
+         * or its summed duration for results recorded without timestamps.
+         */
+        long wallNanos() {
+            long wallNanos = 0;
+            for (int shard = 0; shard < shardDurationNanos.length; shard++) {
+                long shardNanos = shardEndMillis[shard] > shardStartMillis[shard]
+                        ? (shardEndMillis[shard] - shardStartMillis[shard]) * 1_000_000
+                        : shardDurationNanos[shard];
+                wallNanos = Math.max(wallNanos, shardNanos);
+            }
+            return wallNanos;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.report;
+
+/**
+ * Log-linear histogram of durations in the style of HdrHistogram: each power of two of
+ * microseconds is split into eight buckets, so any recorded value is known to within 12.5%
+ * whatever its magnitude. Counts live in one primitive array of fixed size.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucket(value / 1000)]++;
+        count++;
+        totalNanos += value;
+        maxNanos = Math.max(maxNanos, value);
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        totalNanos += other.totalNanos;
+        maxNanos = Math.max(maxNanos, other.maxNanos);
+    }
+
+    long count() {
+        return count;
+    }
+
+    long totalNanos() {
+        return totalNanos;
+    }
+
+    long maxNanos() {
+        return maxNanos;
+    }
+
+    /** Returns the upper bound of the bucket holding the given percentile, in nanoseconds, or the maximum if that is lower. */
+    long percentileNanos(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(maxNanos, upperMicros(i) * 1000);
+            }
+        }
+        return maxNanos;
+    }
+
+    /**
+     * Returns the counts folded into one bucket per power of two of microseconds: element
+     * {@code i} counts values below {@code 2^i} microseconds and, for i above zero, at least
+     * {@code 2^(i-1)}.
+     */
+    long[] powerOfTwoCounts() {
+        long[] folded = new long[65];
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] != 0) {
+                folded[64 - Long.numberOfLeadingZeros(lowerMicros(i))] += counts[i];
+            }
+        }
+        return folded;
+    }
+
+    private static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((micros >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long lowerMicros(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS) << shift;
+    }
+
+    /** Returns the exclusive upper bound of the bucket: no value recorded in it reaches this many microseconds. */
+    private static long upperMicros(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            // Each of the exact buckets holds one microsecond
+            return bucket + 1;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        return lowerMicros(bucket) + (1L << shift);
+    }
+}
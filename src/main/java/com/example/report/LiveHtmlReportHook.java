@@ -0,0 +1,159 @@
+package com.example.report;
+
+import com.intuit.karate.RuntimeHook;
+import com.intuit.karate.Suite;
+import com.intuit.karate.core.FeatureResult;
+import com.intuit.karate.core.FeatureRuntime;
+import com.intuit.karate.core.ScenarioResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Writes the single-file report while the suite runs: each feature's section is appended and
+ * flushed as soon as the feature completes, followed by a small script that brings the summary
+ * counters up to date. A run that dies part way still leaves a readable report of every
+ * feature finished so far, and nothing but the search index is kept in memory between features.
+ * A hook passed to several runs writes a fresh report for each, overwriting the last.
+ *
+ * <pre>
+ * Runner.path("classpath:features").hook(new LiveHtmlReportHook()).parallel(5);
+ * </pre>
+ */
+public class LiveHtmlReportHook implements RuntimeHook {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveHtmlReportHook.class);
+
+    private static final HtmlTemplate UPDATE_FUNCTION = HtmlTemplate.compile(
+        "<script>\n" +
+        "function updateSummary(features, scenarios, passed, failed, duration) {\n" +
+        "  document.getElementById('summary-features').textContent = features;\n" +
+        "  document.getElementById('summary-scenarios').textContent = scenarios;\n" +
+        "  document.getElementById('summary-passed').textContent = passed;\n" +
+        "  document.getElementById('summary-failed').textContent = failed;\n" +
+        "  document.getElementById('summary-duration').textContent = duration;\n" +
+        "}\n" +
+        "</script>\n");
+    private static final HtmlTemplate SUMMARY_UPDATE = HtmlTemplate.compile(
+        "<script>updateSummary({{features}}, {{scenarios}}, {{passed}}, {{failed}}, '{{duration}}');</script>\n");
+
+    private final Path outputFile;
+    private final SingleFileHtmlReporter.Options options;
+
+    // State of the report being written, reset for each suite
+    private ReportContext context;
+    private HtmlOutput html;
+    private TrendStore trendStore;
+    private long startNanos;
+    private int features;
+    private int scenarios;
+    private int passed;
+    private int failed;
+
+    public LiveHtmlReportHook() {
+        this(Paths.get(SingleFileHtmlReporter.REPORT_DIR, SingleFileHtmlReporter.REPORT_FILE_NAME), new SingleFileHtmlReporter.Options());
+    }
+
+    public LiveHtmlReportHook(Path outputFile, SingleFileHtmlReporter.Options options) {
+        this.outputFile = outputFile;
+        this.options = options;
+    }
+
+    @Override
+    public synchronized void beforeSuite(Suite suite) {
+        startNanos = System.nanoTime();
+        // Payload ids, search documents and counters of an earlier suite mean nothing in this report
+        context = new ReportContext(options);
+        features = 0;
+        scenarios = 0;
+        passed = 0;
+        failed = 0;
+        trendStore = SingleFileHtmlReporter.openTrendStore(options);
+        try {
+            Path reportDir = outputFile.toAbsolutePath().getParent();
+            Files.createDirectories(reportDir);
+            html = SingleFileHtmlReporter.openWriter(Files.newOutputStream(outputFile));
+            SingleFileHtmlReporter.writeHeader(html);
+            SingleFileHtmlReporter.writeSummary(html, 0, 0, 0, 0, 0);
+            // Functions go first so a partial report is interactive too
+            SingleFileHtmlReporter.writeScripts(html);
+            UPDATE_FUNCTION.render(html);
+            html.flush();
+        } catch (IOException e) {
+            logger.error("Failed to start the live HTML report at {}", outputFile, e);
+            close();
+        }
+    }
+
+    @Override
+    public synchronized void afterFeature(FeatureRuntime fr) {
+        // Features pulled in with call/read are part of their caller's section
+        if (html == null || !fr.caller.isNone()) {
+            return;
+        }
+        FeatureResult featureResult = fr.result;
+        features++;
+        if (trendStore != null) {
+            trendStore.record(featureResult);
+        }
+        for (ScenarioResult scenarioResult : featureResult.getScenarioResults()) {
+            scenarios++;
+            if (scenarioResult.isFailed()) {
+                failed++;
+            } else {
+                passed++;
+            }
+        }
+        try {
+            SingleFileHtmlReporter.writeFeature(featureResult, html, context);
+            writeSummaryUpdate();
+            html.flush();
+        } catch (IOException e) {
+            logger.error("Failed to write a feature to the live HTML report at {}", outputFile, e);
+            close();
+        }
+    }
+
+    @Override
+    public synchronized void afterSuite(Suite suite) {
+        if (html == null) {
+            return;
+        }
+        try {
+            // The trends need the whole run, so they are the one section that comes last
+            if (trendStore != null) {
+                SingleFileHtmlReporter.writeTrends(html, trendStore, options);
+            }
+            SingleFileHtmlReporter.writePerformance(html, context.timings);
+            SingleFileHtmlReporter.writeSearchIndex(html, context);
+            SingleFileHtmlReporter.writeEnd(html);
+        } catch (IOException e) {
+            logger.error("Failed to finish the live HTML report at {}", outputFile, e);
+        } finally {
+            close();
+        }
+        logger.info("Single file HTML report generated at: {}", outputFile.toAbsolutePath());
+    }
+
+    private void writeSummaryUpdate() throws IOException {
+        SUMMARY_UPDATE.render(html, features, scenarios, passed, failed,
+                SingleFileHtmlReporter.formatDuration(System.nanoTime() - startNanos));
+    }
+
+    private void close() {
+        if (html == null) {
+            return;
+        }
+        try {
+            html.close();
+        } catch (IOException e) {
+            logger.error("Failed to close the live HTML report at {}", outputFile, e);
+        }
+        html = null;
+        context = null;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.report;
+
+/** How a report is laid out on disk. */
+public enum OutputLayout {
+    /** One self-contained HTML file. */
+    SINGLE_FILE,
+    /** An index page plus one page per group of features, sharing one stylesheet and script. */
+    SHARDED,
+    /** A single file unless the run is larger than the reporter's shard threshold. */
+    AUTO
+}
@@ -0,0 +1,81 @@
+package com.example.report;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Content-addressed storage for step payloads in a single-file report. Each distinct payload
+ * is written once, the first time it appears, and every step showing it refers to it by id.
+ * Payloads are embedded as inert templates or, when compression is on, as gzip+base64 blocks
+ * inflated in the browser when the step details are opened.
+ */
+final class PayloadStore {
+
+    static final String ELEMENT_ID_PREFIX = "payload-";
+
+    private static final HtmlTemplate COMPRESSED = HtmlTemplate.compile(
+        "{{&indent}}<script type=\"application/gzip;base64\" id=\"" + ELEMENT_ID_PREFIX + "{{&id}}\">{{&payload}}</script>\n");
+    private static final HtmlTemplate INERT = HtmlTemplate.compile(
+        "{{&indent}}<template id=\"" + ELEMENT_ID_PREFIX + "{{&id}}\">{{payload}}</template>\n");
+    private static final HtmlTemplate PLACEHOLDER = HtmlTemplate.compile(
+        "{{&indent}}<pre data-payload=\"{{&id}}\"></pre>\n");
+
+    private final boolean compress;
+    private final int maxChars;
+    private final Set<String> written = new HashSet<>();
+
+    PayloadStore(boolean compress, int maxChars) {
+        this.compress = compress;
+        this.maxChars = maxChars;
+    }
+
+    /** Writes a placeholder for the payload, preceded by the payload itself if it is new to the report. */
+    void write(String payload, HtmlOutput html, String indent) throws IOException {
+        write(payload, html, html, indent);
+    }
+
+    /**
+     * Writes a placeholder for the payload to {@code html} and the payload itself, if it is new to
+     * the report, to {@code store}. The two differ when the placeholder is part of deferred markup
+     * that other steps' placeholders cannot rely on.
+     */
+    void write(String payload, HtmlOutput html, HtmlOutput store, String indent) throws IOException {
+        String content = truncate(payload);
+        String id = contentId(content);
+        if (written.add(id)) {
+            if (compress) {
+                COMPRESSED.render(store, indent, id, GzipBase64.encode(content));
+            } else {
+                INERT.render(store, indent, id, content);
+            }
+        }
+        PLACEHOLDER.render(html, indent, id);
+    }
+
+    private String truncate(String payload) {
+        if (maxChars <= 0 || payload.length() <= maxChars) {
+            return payload;
+        }
+        return payload.substring(0, maxChars)
+                + "\n... [truncated " + (payload.length() - maxChars) + " of " + payload.length() + " characters]";
+    }
+
+    private static String contentId(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            // 128 bits keeps accidental collisions out of reach for any realistic report
+            StringBuilder id = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                id.append(Character.forDigit((digest[i] >> 4) & 0xf, 16))
+                  .append(Character.forDigit(digest[i] & 0xf, 16));
+            }
+            return id.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
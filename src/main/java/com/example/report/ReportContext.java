@@ -0,0 +1,31 @@
+package com.example.report;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * State shared by every section of one single-file report while it is being written.
+ */
+final class ReportContext {
+
+    private static final int DEFERRED_BUFFER_SIZE = 8 * 1024;
+
+    final SingleFileHtmlReporter.Options options;
+    final SearchIndex searchIndex = new SearchIndex();
+    final PayloadStore payloads;
+    final TimingStats timings = new TimingStats();
+    /** Where the steps of a passed scenario are rendered before being compressed, in failure-first mode only. */
+    final ByteArrayOutputStream deferredBuffer;
+    final HtmlOutput deferredSteps;
+
+    ReportContext(SingleFileHtmlReporter.Options options) {
+        this.options = options;
+        this.payloads = new PayloadStore(options.compressPayloads, options.maxPayloadChars);
+        if (options.failureFirst) {
+            this.deferredBuffer = new ByteArrayOutputStream();
+            this.deferredSteps = new HtmlOutput(deferredBuffer, DEFERRED_BUFFER_SIZE);
+        } else {
+            this.deferredBuffer = null;
+            this.deferredSteps = null;
+        }
+    }
+}
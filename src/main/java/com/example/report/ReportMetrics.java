@@ -0,0 +1,284 @@
+package com.example.report;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Phase timings and I/O counters of one report generation. Pass an instance to the options of
+ * {@link SingleFileHtmlReporter}, {@link KarateResultMerger} or {@link KarateReportConsolidator}
+ * and read it once the report is written; without one a disabled instance is used whose methods
+ * return straight away. Phases run on several workers at once add up, so they measure work
+ * rather than wall-clock time.
+ *
+ * <pre>
+ * ReportMetrics metrics = new ReportMetrics().exportAs(ReportMetrics.Format.PROMETHEUS);
+ * KarateReportConsolidator.consolidateReports("target/karate-reports", new KarateReportConsolidator.Options().metrics(metrics));
+ * </pre>
+ */
+public final class ReportMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportMetrics.class);
+
+    public enum Phase {
+        /** Finding the input files. */
+        WALK,
+        /** Parsing input files. */
+        PARSE,
+        /** Pulling feature content out of parsed input. */
+        EXTRACT,
+        /** Building the report content. */
+        RENDER,
+        /** Turning the built content into characters. */
+        SERIALIZE,
+        /** Writing bytes to disk. */
+        WRITE
+    }
+
+    public enum Format {
+        JSON(".metrics.json"),
+        PROMETHEUS(".metrics.prom");
+
+        final String suffix;
+
+        Format(String suffix) {
+            this.suffix = suffix;
+        }
+    }
+
+    static final ReportMetrics DISABLED = new ReportMetrics(false);
+
+    private final boolean enabled;
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong filesRead = new AtomicLong();
+    private final AtomicLong filesWritten = new AtomicLong();
+    private final LongAccumulator peakBufferBytes = new LongAccumulator(Math::max, 0);
+    private volatile Format exportFormat;
+
+    public ReportMetrics() {
+        this(true);
+    }
+
+    private ReportMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /** Also write the metrics next to the report, named after it with a {@code .metrics.json} or {@code .metrics.prom} suffix. */
+    public ReportMetrics exportAs(Format format) {
+        this.exportFormat = format;
+        return this;
+    }
+
+    public long phaseNanos(Phase phase) {
+        return phaseNanos.get(phase.ordinal());
+    }
+
+    public long bytesRead() {
+        return bytesRead.get();
+    }
+
+    public long bytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long filesRead() {
+        return filesRead.get();
+    }
+
+    public long filesWritten() {
+        return filesWritten.get();
+    }
+
+    /** Largest single piece of content held in memory at once, such as a whole input file or payload. */
+    public long peakBufferBytes() {
+        return peakBufferBytes.get();
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    /** Returns a start time for {@link #stop}, or zero without reading the clock when disabled. */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /** Adds the time since {@code start} to the phase and returns it, or zero when disabled. */
+    long stop(Phase phase, long start) {
+        if (!enabled) {
+            return 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        phaseNanos.addAndGet(phase.ordinal(), elapsed);
+        return elapsed;
+    }
+
+    void add(Phase phase, long nanos) {
+        if (enabled) {
+            phaseNanos.addAndGet(phase.ordinal(), nanos);
+        }
+    }
+
+    void fileRead(long bytes) {
+        if (enabled) {
+            filesRead.incrementAndGet();
+            bytesRead.addAndGet(bytes);
+        }
+    }
+
+    void fileWritten(long bytes) {
+        if (enabled) {
+            filesWritten.incrementAndGet();
+            bytesWritten.addAndGet(bytes);
+        }
+    }
+
+    void buffer(long bytes) {
+        if (enabled) {
+            peakBufferBytes.accumulate(bytes);
+        }
+    }
+
+    /**
+     * Wraps a file's output stream so that its bytes and the time spent writing them are
+     * counted; the stream itself is returned when disabled.
+     */
+    OutputStream meter(OutputStream out) {
+        return enabled ? new MeteredOutputStream(out) : out;
+    }
+
+    /**
+     * Logs the metrics and, if an export format was chosen, writes them next to the report.
+     * A failed export is logged rather than failing the report.
+     */
+    void publish(Path reportFile) {
+        if (!enabled) {
+            return;
+        }
+        logger.debug("Report metrics for {}: {}", reportFile, this);
+        Format format = exportFormat;
+        if (format == null) {
+            return;
+        }
+        Path metricsFile = reportFile.resolveSibling(reportFile.getFileName() + format.suffix);
+        try (Writer writer = Files.newBufferedWriter(metricsFile, StandardCharsets.UTF_8)) {
+            if (format == Format.JSON) {
+                writeJson(writer);
+            } else {
+                writePrometheus(writer);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to export report metrics to {}", metricsFile, e);
+        }
+    }
+
+    /** Writes the metrics as one JSON object, with phase times in nanoseconds. */
+    public void writeJson(Appendable out) throws IOException {
+        out.append("{\"phases\":{");
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) {
+                out.append(',');
+            }
+            out.append('"').append(phase.name().toLowerCase(Locale.ROOT)).append("\":").append(String.valueOf(phaseNanos(phase)));
+        }
+        out.append("},\"bytesRead\":").append(String.valueOf(bytesRead()))
+            .append(",\"bytesWritten\":").append(String.valueOf(bytesWritten()))
+            .append(",\"filesRead\":").append(String.valueOf(filesRead()))
+            .append(",\"filesWritten\":").append(String.valueOf(filesWritten()))
+            .append(",\"peakBufferBytes\":").append(String.valueOf(peakBufferBytes()))
+            .append("}\n");
+    }
+
+    /** Writes the metrics in the Prometheus text exposition format. */
+    public void writePrometheus(Appendable out) throws IOException {
+        out.append("# HELP karate_report_phase_seconds Time spent in each phase of report generation.\n")
+            .append("# TYPE karate_report_phase_seconds gauge\n");
+        for (Phase phase : Phase.values()) {
+            out.append("karate_report_phase_seconds{phase=\"").append(phase.name().toLowerCase(Locale.ROOT)).append("\"} ")
+                .append(String.format(Locale.ROOT, "%.6f", phaseNanos(phase) / 1e9)).append('\n');
+        }
+        writeGauge(out, "karate_report_bytes_read", "Bytes read from input files.", bytesRead());
+        writeGauge(out, "karate_report_bytes_written", "Bytes written to output files.", bytesWritten());
+        writeGauge(out, "karate_report_files_read", "Input files read.", filesRead());
+        writeGauge(out, "karate_report_files_written", "Output files written.", filesWritten());
+        writeGauge(out, "karate_report_peak_buffer_bytes", "Largest piece of content held in memory at once.", peakBufferBytes());
+    }
+
+    private static void writeGauge(Appendable out, String name, String help, long value) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+            .append("# TYPE ").append(name).append(" gauge\n")
+            .append(name).append(' ').append(String.valueOf(value)).append('\n');
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            text.append(phase.name().toLowerCase(Locale.ROOT)).append('=').append(phaseNanos(phase) / 1_000_000).append("ms ");
+        }
+        return text.append("read=").append(filesRead()).append(" files/").append(bytesRead()).append(" bytes")
+            .append(" written=").append(filesWritten()).append(" files/").append(bytesWritten()).append(" bytes")
+            .append(" peakBuffer=").append(peakBufferBytes()).append(" bytes")
+            .toString();
+    }
+
+    /** Counts a file's bytes and write time, and the file itself when closed. */
+    private final class MeteredOutputStream extends FilterOutputStream {
+
+        private long bytes;
+        private boolean closed;
+
+        MeteredOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            out.write(b);
+            add(Phase.WRITE, System.nanoTime() - start);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            out.write(b, off, len);
+            add(Phase.WRITE, System.nanoTime() - start);
+            bytes += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            out.flush();
+            add(Phase.WRITE, System.nanoTime() - start);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                fileWritten(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.report;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A feature read back from the HTML report Karate wrote for it, for shards that kept no JSON
+ * results. Karate 1.x renders each scenario as a {@code div.scenario} whose heading carries its
+ * name, status and duration in milliseconds; the rest of the scenario is kept as markup. Older
+ * reports without that structure are kept whole, as a feature with no scenarios.
+ */
+final class ScrapedFeature {
+
+    final String name;
+    /** The feature file path as Karate printed it, or the report path if it did not. */
+    final String path;
+    final List<ScrapedScenario> scenarios;
+    /** The report content, for reports without recognizable scenarios only. */
+    final String html;
+    final String text;
+
+    static final class ScrapedScenario {
+        final String name;
+        final boolean failed;
+        final long durationNanos;
+        final String html;
+        final String text;
+
+        ScrapedScenario(String name, boolean failed, long durationNanos, String html, String text) {
+            this.name = name;
+            this.failed = failed;
+            this.durationNanos = durationNanos;
+            this.html = html;
+            this.text = text;
+        }
+    }
+
+    private ScrapedFeature(String name, String path, List<ScrapedScenario> scenarios, String html, String text) {
+        this.name = name;
+        this.path = path;
+        this.scenarios = scenarios;
+        this.html = html;
+        this.text = text;
+    }
+
+    static ScrapedFeature parse(Path shardDir, Path reportPath) throws IOException {
+        Document doc = Jsoup.parse(new File(reportPath.toString()), "UTF-8");
+        doc.outputSettings().prettyPrint(false);
+        String path = text(doc.selectFirst(".feature-path"), shardDir.relativize(reportPath).toString());
+        String name = text(doc.selectFirst(".feature-name"), path);
+
+        Elements scenarioElements = doc.select("div.scenario");
+        if (scenarioElements.isEmpty()) {
+            Element content = doc.selectFirst("#content, div.container");
+            Element body = content != null ? content : doc.body();
+            return new ScrapedFeature(name, path, new ArrayList<>(), body.outerHtml(), body.text());
+        }
+        List<ScrapedScenario> scenarios = new ArrayList<>(scenarioElements.size());
+        for (Element scenario : scenarioElements) {
+            Element time = scenario.selectFirst(".scenario-time");
+            boolean failed = time != null && time.hasClass("failed");
+            // Karate prints the rounded milliseconds in the last span of the heading's time cell
+            long durationNanos = 0;
+            if (time != null && time.children().size() > 0) {
+                try {
+                    durationNanos = Long.parseLong(time.children().last().text().trim()) * 1_000_000;
+                } catch (NumberFormatException e) {
+                    // Left at zero, the scenario still counts
+                }
+            }
+            String scenarioName = text(scenario.selectFirst(".scenario-name"), name);
+            String text = scenario.text();
+            Element heading = scenario.selectFirst(".scenario-heading");
+            if (heading != null) {
+                heading.remove();
+            }
+            scenarios.add(new ScrapedScenario(scenarioName, failed, durationNanos, scenario.html(), text));
+        }
+        return new ScrapedFeature(name, path, scenarios, null, null);
+    }
+
+    private static String text(Element element, String fallback) {
+        if (element == null) {
+            return fallback;
+        }
+        String text = element.text().trim();
+        return text.isEmpty() ? fallback : text;
+    }
+}
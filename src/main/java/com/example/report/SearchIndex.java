@@ -0,0 +1,227 @@
+package com.example.report;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Inverted index over report documents (scenarios or feature panes), built while the report
+ * is written and embedded as JSON so the browser can search without scanning the DOM.
+ * Documents must be added in increasing id order.
+ */
+final class SearchIndex {
+
+    static final String ELEMENT_ID = "search-index";
+
+    /**
+     * Longer terms, mostly ids, tokens or hashes, are indexed by their prefix of this many code
+     * points, and query words are cut the same way, so they still match.
+     */
+    private static final int MAX_TERM_LENGTH = 32;
+    private static final int MIN_TERM_LENGTH = 2;
+
+    /**
+     * Defines {@code KarateSearch.query(text)}, which returns a Set of matching document ids or
+     * null for an empty query, and {@code KarateSearch.debounce(fn, wait)}. Every word of the
+     * query must prefix-match a term in the document; words never match inside a term. Queries
+     * are split exactly as {@link #forEachTerm} splits the indexed text.
+     */
+    static final String QUERY_ENGINE_JS =
+        "var KarateSearch = (function() {\n" +
+        "  var index = null;\n" +
+        "  \n" +
+        "  function load() {\n" +
+        "    if (index === null) {\n" +
+        "      // A report cut short by a crash has no index; treat it as empty\n" +
+        "      var element = document.getElementById('" + ELEMENT_ID + "');\n" +
+        "      var raw = element ? JSON.parse(element.textContent) : { terms: '', postings: [] };\n" +
+        "      index = { terms: raw.terms.length ? raw.terms.split(' ') : [], postings: raw.postings };\n" +
+        "    }\n" +
+        "    return index;\n" +
+        "  }\n" +
+        "  \n" +
+        "  function lowerBound(terms, prefix) {\n" +
+        "    var lo = 0, hi = terms.length;\n" +
+        "    while (lo < hi) {\n" +
+        "      var mid = (lo + hi) >>> 1;\n" +
+        "      if (terms[mid] < prefix) { lo = mid + 1; } else { hi = mid; }\n" +
+        "    }\n" +
+        "    return lo;\n" +
+        "  }\n" +
+        "  \n" +
+        "  function query(text) {\n" +
+        "    var words = text.toLowerCase().split(/[^\\p{L}\\p{N}]+/u).filter(function(w) { return w.length > 0; })\n" +
+        "      .map(function(w) { return Array.from(w).slice(0, " + MAX_TERM_LENGTH + ").join(''); });\n" +
+        "    if (words.length === 0) {\n" +
+        "      return null;\n" +
+        "    }\n" +
+        "    var idx = load();\n" +
+        "    var result = null;\n" +
+        "    for (var w = 0; w < words.length; w++) {\n" +
+        "      var matched = new Set();\n" +
+        "      for (var t = lowerBound(idx.terms, words[w]); t < idx.terms.length && idx.terms[t].startsWith(words[w]); t++) {\n" +
+        "        // Postings are delta encoded\n" +
+        "        var posting = idx.postings[t], doc = 0;\n" +
+        "        for (var p = 0; p < posting.length; p++) {\n" +
+        "          doc += posting[p];\n" +
+        "          if (result === null || result.has(doc)) {\n" +
+        "            matched.add(doc);\n" +
+        "          }\n" +
+        "        }\n" +
+        "      }\n" +
+        "      result = matched;\n" +
+        "      if (result.size === 0) {\n" +
+        "        break;\n" +
+        "      }\n" +
+        "    }\n" +
+        "    return result;\n" +
+        "  }\n" +
+        "  \n" +
+        "  function debounce(fn, wait) {\n" +
+        "    var timer = null;\n" +
+        "    return function() {\n" +
+        "      var self = this, args = arguments;\n" +
+        "      clearTimeout(timer);\n" +
+        "      timer = setTimeout(function() { fn.apply(self, args); }, wait);\n" +
+        "    };\n" +
+        "  }\n" +
+        "  \n" +
+        "  return { query: query, debounce: debounce };\n" +
+        "})();\n";
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private int documentCount;
+
+    private static final class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+
+    /** Allocates the id for the next document. */
+    int newDocument() {
+        return documentCount++;
+    }
+
+    /** Indexes the terms of the text under the given document, which must be the latest one added. */
+    void add(int doc, CharSequence text) {
+        if (text == null) {
+            return;
+        }
+        if (doc >= documentCount) {
+            documentCount = doc + 1;
+        }
+        forEachTerm(text, term -> postings.computeIfAbsent(term, t -> new Postings()).add(doc));
+    }
+
+    /** Adds the documents of another index after this index's own, renumbering them accordingly. */
+    void append(SearchIndex other) {
+        int offset = documentCount;
+        for (Map.Entry<String, Postings> entry : other.postings.entrySet()) {
+            Postings from = entry.getValue();
+            Postings to = postings.computeIfAbsent(entry.getKey(), t -> new Postings());
+            for (int p = 0; p < from.size; p++) {
+                to.add(from.docs[p] + offset);
+            }
+        }
+        documentCount += other.documentCount;
+    }
+
+    int documentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Returns the distinct indexable terms of the text joined by spaces, which indexes the same
+     * way as the text itself. Used to move tokenization off the thread that owns the index.
+     */
+    static String distinctTerms(CharSequence text) {
+        Set<String> terms = new LinkedHashSet<>();
+        forEachTerm(text, terms::add);
+        return String.join(" ", terms);
+    }
+
+    /**
+     * Splits the lower-cased text into runs of letters and numbers, by code point, the way the
+     * query engine's {@code /[^\p{L}\p{N}]+/u} does, so that characters outside the Basic
+     * Multilingual Plane and letter numbers such as Roman numerals are terms on both sides.
+     */
+    private static void forEachTerm(CharSequence text, Consumer<String> action) {
+        // Lower-cased before splitting, as queries are, since a few characters lower-case to more than one
+        String lower = text.toString().toLowerCase(Locale.ROOT);
+        StringBuilder term = new StringBuilder(MAX_TERM_LENGTH);
+        int codePoints = 0;
+        int length = lower.length();
+        int i = 0;
+        while (i <= length) {
+            int c = i < length ? lower.codePointAt(i) : ' ';
+            i += i < length ? Character.charCount(c) : 1;
+            if (isTermCodePoint(c)) {
+                if (codePoints < MAX_TERM_LENGTH) {
+                    term.appendCodePoint(c);
+                    codePoints++;
+                }
+            } else if (codePoints > 0) {
+                if (codePoints >= MIN_TERM_LENGTH) {
+                    action.accept(term.toString());
+                }
+                term.setLength(0);
+                codePoints = 0;
+            }
+        }
+    }
+
+    /** Whether the code point is in a letter (L*) or number (N*) category. */
+    private static boolean isTermCodePoint(int c) {
+        if (Character.isLetter(c)) {
+            return true;
+        }
+        int type = Character.getType(c);
+        return type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER || type == Character.OTHER_NUMBER;
+    }
+
+    /** Writes the index as the JSON read by {@link #QUERY_ENGINE_JS}. */
+    void writeJson(Appendable out) throws IOException {
+        String[] terms = postings.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        out.append("{\"docs\":").append(String.valueOf(documentCount)).append(",\"terms\":\"");
+        for (int t = 0; t < terms.length; t++) {
+            if (t > 0) {
+                out.append(' ');
+            }
+            out.append(terms[t]);
+        }
+        out.append("\",\"postings\":[");
+        for (int t = 0; t < terms.length; t++) {
+            if (t > 0) {
+                out.append(',');
+            }
+            Postings list = postings.get(terms[t]);
+            out.append('[');
+            int previous = 0;
+            for (int p = 0; p < list.size; p++) {
+                if (p > 0) {
+                    out.append(',');
+                }
+                out.append(String.valueOf(list.docs[p] - previous));
+                previous = list.docs[p];
+            }
+            out.append(']');
+        }
+        out.append("]}");
+    }
+}
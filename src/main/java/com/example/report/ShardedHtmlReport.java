@@ -0,0 +1,276 @@
+package com.example.report;
+
+import com.intuit.karate.Results;
+import com.intuit.karate.core.FeatureResult;
+import com.intuit.karate.core.ScenarioResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Writes the content of a {@link SingleFileHtmlReporter} report as an index page plus pages of
+ * whole features, for runs too large for a browser to open as one file. The index holds the
+ * summary, the trends, a table of features linking to their pages, the performance section and
+ * a search index over every scenario; each page carries its own index for searching within it.
+ * Styles and scripts are written once to an assets directory and linked from every page.
+ */
+final class ShardedHtmlReport {
+
+    static final String PAGES_DIR_SUFFIX = "-pages";
+    static final String ASSETS_DIR_SUFFIX = "-assets";
+    private static final String STYLESHEET = "report.css";
+    private static final String SCRIPT = "report.js";
+
+    // Filters the feature table by the scenarios matching the query and carries the query over to the pages
+    private static final String INDEX_JS =
+        "var searchFeatures = KarateSearch.debounce(function() {\n" +
+        "  var text = document.getElementById('searchInput').value;\n" +
+        "  var matches = KarateSearch.query(text);\n" +
+        "  var rows = document.getElementsByClassName('feature-row');\n" +
+        "  for (var i = 0; i < rows.length; i++) {\n" +
+        "    var first = +rows[i].getAttribute('data-first-doc');\n" +
+        "    var end = first + +rows[i].getAttribute('data-docs');\n" +
+        "    var visible = matches === null;\n" +
+        "    for (var doc = first; !visible && doc < end; doc++) {\n" +
+        "      visible = matches.has(doc);\n" +
+        "    }\n" +
+        "    rows[i].style.display = visible ? '' : 'none';\n" +
+        "    rows[i].querySelector('a').search = matches === null ? '' : '?q=' + encodeURIComponent(text);\n" +
+        "  }\n" +
+        "}, 150);\n";
+
+    private static final String PAGE_JS =
+        "document.addEventListener('DOMContentLoaded', function() {\n" +
+        "  var query = new URLSearchParams(location.search).get('q');\n" +
+        "  if (query) {\n" +
+        "    document.getElementById('searchInput').value = query;\n" +
+        "    searchTests();\n" +
+        "  }\n" +
+        "});\n";
+
+    private static final HtmlTemplate FEATURE_TABLE_START = HtmlTemplate.compile(
+        "  <div class=\"search-box\">\n" +
+        "    <input type=\"text\" id=\"searchInput\" placeholder=\"Search test cases...\" onkeyup=\"searchFeatures()\">\n" +
+        "  </div>\n" +
+        "  <table class=\"features\">\n" +
+        "    <tr><th>Feature</th><th>Scenarios</th><th>Passed</th><th>Failed</th></tr>\n");
+    // Scenarios are numbered in page order, so each feature's documents are one range
+    private static final HtmlTemplate FEATURE_ROW = HtmlTemplate.compile(
+        "    <tr class=\"feature-row\" data-first-doc=\"{{firstDoc}}\" data-docs=\"{{docs}}\">" +
+        "<td><a href=\"{{pagesDir}}/{{pageFile}}#feature-{{feature}}\">{{name}}</a></td>" +
+        "<td>{{docs}}</td><td>{{passed}}</td><td>{{failed}}</td></tr>\n");
+    private static final HtmlTemplate FEATURE_TABLE_END = HtmlTemplate.compile("  </table>\n");
+    private static final HtmlTemplate INDEX_SCRIPTS = HtmlTemplate.compile(
+        "<script src=\"{{assetsDir}}/" + SCRIPT + "\"></script>\n" +
+        "<script>\n" + INDEX_JS + "</script>\n");
+    private static final HtmlTemplate PAGE_TITLE = HtmlTemplate.compile(
+        "  <h1><a href=\"../{{index}}\">Karate Test Report</a></h1>\n");
+    private static final HtmlTemplate FEATURE_ANCHOR = HtmlTemplate.compile("  <a id=\"feature-{{feature}}\"></a>\n");
+    private static final HtmlTemplate PAGE_SCRIPTS = HtmlTemplate.compile(
+        "<script src=\"../{{assetsDir}}/" + SCRIPT + "\"></script>\n" +
+        "<script>\n" + PAGE_JS + "</script>\n");
+
+    private ShardedHtmlReport() {
+    }
+
+    /** Whole features making up one page, with the position of the first one in the run. */
+    private static final class Page {
+        final int number;
+        final int firstFeature;
+        final List<PageFeature> features = new ArrayList<>();
+        int scenarios;
+
+        Page(int number, int firstFeature) {
+            this.number = number;
+            this.firstFeature = firstFeature;
+        }
+    }
+
+    /**
+     * A feature of a page: the file its result is saved in, read again when the page is written,
+     * and what the index's feature table shows of it. Pages never hold feature results, so a page
+     * waiting for the pool costs the same whatever the size of its steps' payloads.
+     */
+    private static final class PageFeature {
+        final File resultFile;
+        final String name;
+        final int scenarios;
+        final int failed;
+
+        PageFeature(File resultFile, FeatureResult featureResult) {
+            this.resultFile = resultFile;
+            this.name = featureResult.getFeature().getName();
+            this.scenarios = featureResult.getScenarioResults().size();
+            int failed = 0;
+            for (ScenarioResult scenarioResult : featureResult.getScenarioResults()) {
+                if (scenarioResult.isFailed()) {
+                    failed++;
+                }
+            }
+            this.failed = failed;
+        }
+    }
+
+    /** What the index needs from a written page. */
+    private static final class WrittenPage {
+        final SearchIndex searchIndex;
+        final TimingStats timings;
+
+        WrittenPage(SearchIndex searchIndex, TimingStats timings) {
+            this.searchIndex = searchIndex;
+            this.timings = timings;
+        }
+    }
+
+    /** The index file name without its .html extension, which the page and asset directories are named after. */
+    private static String baseName(Path indexFile) {
+        String indexName = indexFile.getFileName().toString();
+        return indexName.endsWith(".html") ? indexName.substring(0, indexName.length() - 5) : indexName;
+    }
+
+    /** Deletes the pages and assets a sharded report with this index file left, once a single file report replaced it. */
+    static void deleteOutputDirs(Path indexFile) throws IOException {
+        Path reportDir = indexFile.toAbsolutePath().getParent();
+        KarateReportConsolidator.deleteRecursively(reportDir.resolve(baseName(indexFile) + PAGES_DIR_SUFFIX));
+        KarateReportConsolidator.deleteRecursively(reportDir.resolve(baseName(indexFile) + ASSETS_DIR_SUFFIX));
+    }
+
+    static void write(Results results, Path indexFile, SingleFileHtmlReporter.Options options) throws IOException {
+        Path reportDir = indexFile.toAbsolutePath().getParent();
+        String indexName = indexFile.getFileName().toString();
+        String baseName = baseName(indexFile);
+        String pagesDirName = baseName + PAGES_DIR_SUFFIX;
+        String assetsDirName = baseName + ASSETS_DIR_SUFFIX;
+        Path pagesDir = reportDir.resolve(pagesDirName);
+        Path assetsDir = reportDir.resolve(assetsDirName);
+        ReportMetrics metrics = options.metrics;
+
+        // Pages of the last report are pruned only once the new index has replaced it
+        Files.createDirectories(pagesDir);
+        Files.createDirectories(assetsDir);
+        try (HtmlOutput css = SingleFileHtmlReporter.openWriter(metrics.meter(Files.newOutputStream(assetsDir.resolve(STYLESHEET))))) {
+            css.append(SingleFileHtmlReporter.STYLES);
+        }
+        try (HtmlOutput js = SingleFileHtmlReporter.openWriter(metrics.meter(Files.newOutputStream(assetsDir.resolve(SCRIPT))))) {
+            SingleFileHtmlReporter.writeScriptBody(js);
+        }
+
+        ExecutorService pageWriter = new ForkJoinPool(options.parallelism);
+        Set<String> pageFiles = new HashSet<>();
+        OutputStream indexOut = metrics.meter(Files.newOutputStream(KarateReportConsolidator.tempFile(indexFile)));
+        try (HtmlOutput html = SingleFileHtmlReporter.openWriter(indexOut)) {
+            SingleFileHtmlReporter.writeHead(html, assetsDirName + "/" + STYLESHEET);
+            SingleFileHtmlReporter.writeTitle(html);
+            SingleFileHtmlReporter.writeSummaryCounters(html, results.getFeaturesTotal(), results.getScenariosTotal(),
+                    results.getScenariosPassed(), results.getScenariosFailed(), SingleFileHtmlReporter.durationNanos(results));
+            TrendStore trendStore = SingleFileHtmlReporter.openTrendStore(options);
+            if (trendStore != null) {
+                try (Stream<FeatureResult> trendResults = SingleFileHtmlReporter.featureResults(results)) {
+                    trendResults.forEach(trendStore::record);
+                }
+                SingleFileHtmlReporter.writeTrends(html, trendStore, options);
+            }
+            FEATURE_TABLE_START.render(html);
+
+            // Pages are cut only as the pool has room, so at most a few are held at once;
+            // their indexes and timings are merged here in page order
+            SearchIndex searchIndex = new SearchIndex();
+            TimingStats timings = new TimingStats();
+            File workingDir = results.getSuite().workingDir;
+            Iterator<File> remaining = SingleFileHtmlReporter.resultFiles(results).iterator();
+            Deque<Page> pages = new ArrayDeque<>();
+            Deque<Future<WrittenPage>> pending = new ArrayDeque<>();
+            int pageCount = 0;
+            int featureCount = 0;
+            while (true) {
+                while (remaining.hasNext() && pending.size() < 2 * options.parallelism) {
+                    Page next = new Page(++pageCount, featureCount);
+                    do {
+                        File resultFile = remaining.next();
+                        PageFeature feature = new PageFeature(resultFile, SingleFileHtmlReporter.readFeatureResult(workingDir, resultFile));
+                        next.features.add(feature);
+                        next.scenarios += feature.scenarios;
+                    } while (next.scenarios < options.scenariosPerPage && remaining.hasNext());
+                    featureCount += next.features.size();
+                    Path pageFile = pagesDir.resolve(pageFileName(next));
+                    pageFiles.add(pageFileName(next));
+                    pages.add(next);
+                    pending.add(pageWriter.submit(() -> writePage(next, workingDir, pageFile, indexName, assetsDirName, options)));
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+                WrittenPage written = KarateReportConsolidator.await(pending.poll());
+                int firstDoc = searchIndex.documentCount();
+                searchIndex.append(written.searchIndex);
+                timings.addAll(written.timings);
+                writeFeatureRows(html, pages.poll(), pagesDirName, firstDoc);
+            }
+
+            FEATURE_TABLE_END.render(html);
+            SingleFileHtmlReporter.writePerformance(html, timings);
+            SingleFileHtmlReporter.writeSearchIndex(html, searchIndex);
+            INDEX_SCRIPTS.render(html, assetsDirName);
+            SingleFileHtmlReporter.writeEnd(html);
+        } catch (IOException | RuntimeException e) {
+            KarateReportConsolidator.discard(e, indexOut, indexFile);
+            throw e;
+        } finally {
+            pageWriter.shutdownNow();
+        }
+        KarateReportConsolidator.replace(indexFile);
+        KarateReportConsolidator.pruneOutputDir(pagesDir, pageFiles);
+    }
+
+    private static WrittenPage writePage(Page page, File workingDir, Path pageFile, String indexName, String assetsDirName,
+                                         SingleFileHtmlReporter.Options options) throws IOException {
+        ReportMetrics metrics = options.metrics;
+        long start = metrics.start();
+        ReportContext context = new ReportContext(options);
+        try (HtmlOutput html = SingleFileHtmlReporter.openWriter(metrics.meter(Files.newOutputStream(KarateReportConsolidator.tempFile(pageFile))))) {
+            SingleFileHtmlReporter.writeHead(html, "../" + assetsDirName + "/" + STYLESHEET);
+            PAGE_TITLE.render(html, indexName);
+            SingleFileHtmlReporter.writeSearchBox(html);
+            for (int i = 0; i < page.features.size(); i++) {
+                FEATURE_ANCHOR.render(html, page.firstFeature + i);
+                FeatureResult featureResult = SingleFileHtmlReporter.readFeatureResult(workingDir, page.features.get(i).resultFile);
+                SingleFileHtmlReporter.writeFeature(featureResult, html, context);
+            }
+            SingleFileHtmlReporter.writeSearchIndex(html, context);
+            PAGE_SCRIPTS.render(html, assetsDirName);
+            SingleFileHtmlReporter.writeEnd(html);
+        }
+        KarateReportConsolidator.replace(pageFile);
+        // Includes the page's own disk writes, which are counted under WRITE as well
+        metrics.stop(ReportMetrics.Phase.RENDER, start);
+        return new WrittenPage(context.searchIndex, context.timings);
+    }
+
+    private static void writeFeatureRows(HtmlOutput html, Page page, String pagesDirName, int firstDoc) throws IOException {
+        int doc = firstDoc;
+        for (int i = 0; i < page.features.size(); i++) {
+            PageFeature feature = page.features.get(i);
+            FEATURE_ROW.render(html, doc, feature.scenarios, pagesDirName, pageFileName(page), page.firstFeature + i,
+                    feature.name, feature.scenarios - feature.failed, feature.failed);
+            doc += feature.scenarios;
+        }
+    }
+
+    private static String pageFileName(Page page) {
+        return "page-" + page.number + ".html";
+    }
+}
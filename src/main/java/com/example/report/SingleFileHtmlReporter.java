@@ -0,0 +1,861 @@
+package com.example.report;
+
+import com.intuit.karate.JsonUtils;
+import com.intuit.karate.Results;
+import com.intuit.karate.core.Feature;
+import com.intuit.karate.core.FeatureResult;
+import com.intuit.karate.core.Scenario;
+import com.intuit.karate.core.ScenarioResult;
+import com.intuit.karate.core.Step;
+import com.intuit.karate.core.StepResult;
+import com.intuit.karate.core.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class SingleFileHtmlReporter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SingleFileHtmlReporter.class);
+    
+    static final String REPORT_DIR = "target/single-file-report";
+    static final String REPORT_FILE_NAME = "karate-report.html";
+    
+    // Large enough that each scenario block goes out in a handful of writes
+    static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    
+    static final String STYLES =
+        "    body { font-family: Arial, sans-serif; margin: 20px; }\n" +
+        "    .summary { background-color: #f8f9fa; padding: 15px; margin-bottom: 20px; border-radius: 5px; }\n" +
+        "    .feature { margin-bottom: 30px; border: 1px solid #ddd; border-radius: 5px; overflow: hidden; }\n" +
+        "    .feature-header { background-color: #007bff; color: white; padding: 10px; }\n" +
+        "    .scenario { margin: 15px; border: 1px solid #eee; border-radius: 5px; }\n" +
+        "    .scenario-header { background-color: #f1f1f1; padding: 10px; display: flex; justify-content: space-between; }\n" +
+        "    .steps { padding: 10px; }\n" +
+        "    .step { margin-bottom: 5px; padding: 5px; border-left: 3px solid #ccc; }\n" +
+        "    .pass { background-color: #d4edda; border-left-color: #28a745; }\n" +
+        "    .fail { background-color: #f8d7da; border-left-color: #dc3545; }\n" +
+        "    .tags { font-size: 0.8em; color: #6c757d; }\n" +
+        "    .tag { display: inline-block; background-color: #e9ecef; padding: 2px 5px; margin-right: 5px; border-radius: 3px; }\n" +
+        "    .toggle-btn { background: none; border: none; cursor: pointer; color: #007bff; }\n" +
+        "    .hidden { display: none; }\n" +
+        "    .step-details pre { background-color: #f8f9fa; padding: 10px; border-radius: 5px; overflow: auto; }\n" +
+        "    .search-box { margin-bottom: 15px; }\n" +
+        "    .search-box input { padding: 8px; width: 300px; }\n" +
+        "    .logo { max-height: 50px; margin-right: 15px; }\n" +
+        "    .header { display: flex; align-items: center; }\n" +
+        "    .trends, .performance { margin-bottom: 20px; }\n" +
+        "    .trends table, .performance table { border-collapse: collapse; margin-bottom: 15px; }\n" +
+        "    .trends th, .trends td, .performance th, .performance td { border: 1px solid #ddd; padding: 4px 8px; text-align: left; }\n" +
+        "    .bar { background-color: #007bff; height: 10px; min-width: 1px; }\n" +
+        "    .compact .scenario-header { padding: 5px 10px; }\n" +
+        "    .compact h3 { margin: 0; font-size: 1em; }\n" +
+        "    .compact .toggle-btn { margin: 5px 10px; }\n";
+    
+    private static final String HEAD_START =
+        "<!DOCTYPE html>\n" +
+        "<html lang=\"en\">\n" +
+        "<head>\n" +
+        "  <meta charset=\"UTF-8\">\n" +
+        "  <meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">\n" +
+        "  <title>Karate Test Report</title>\n";
+    
+    private static final String SCRIPT_FUNCTIONS =
+        SearchIndex.QUERY_ENGINE_JS +
+        "\n" +
+        GzipBase64.INFLATE_FUNCTION_JS +
+        "\n" +
+        "function toggleDetails(id) {\n" +
+        "  var element = document.getElementById(id);\n" +
+        "  if (element.classList.contains('hidden')) {\n" +
+        "    element.classList.remove('hidden');\n" +
+        "    loadPayloads(element);\n" +
+        "  } else {\n" +
+        "    element.classList.add('hidden');\n" +
+        "  }\n" +
+        "}\n\n" +
+        "// Payloads are stored once per report and copied into a step when it is first opened\n" +
+        "function loadPayloads(element) {\n" +
+        "  element.querySelectorAll('pre[data-payload]').forEach(function(pre) {\n" +
+        "    var source = document.getElementById('" + PayloadStore.ELEMENT_ID_PREFIX + "' + pre.getAttribute('data-payload'));\n" +
+        "    pre.removeAttribute('data-payload');\n" +
+        "    if (source.tagName === 'TEMPLATE') {\n" +
+        "      pre.textContent = source.content.textContent;\n" +
+        "    } else {\n" +
+        "      inflatePayload(source.textContent).then(function(text) { pre.textContent = text; });\n" +
+        "    }\n" +
+        "  });\n" +
+        "}\n\n" +
+        "// Steps of passed scenarios in failure-first reports are inflated into place when first shown\n" +
+        "function toggleSteps(button) {\n" +
+        "  var steps = button.nextElementSibling;\n" +
+        "  if (steps.classList.contains('deferred-steps')) {\n" +
+        "    steps.classList.remove('deferred-steps');\n" +
+        "    inflatePayload(steps.textContent).then(function(html) {\n" +
+        "      steps.insertAdjacentHTML('afterend', html);\n" +
+        "      steps.remove();\n" +
+        "    });\n" +
+        "  } else {\n" +
+        "    steps.classList.toggle('hidden');\n" +
+        "  }\n" +
+        "}\n\n" +
+        "var searchTests = KarateSearch.debounce(function() {\n" +
+        "  var matches = KarateSearch.query(document.getElementById('searchInput').value);\n" +
+        "  var scenarios = document.getElementsByClassName('scenario');\n" +
+        "  var visibleFeatures = new Set();\n" +
+        "  for (var i = 0; i < scenarios.length; i++) {\n" +
+        "    var visible = matches === null || matches.has(+scenarios[i].getAttribute('data-doc'));\n" +
+        "    scenarios[i].style.display = visible ? '' : 'none';\n" +
+        "    if (visible) {\n" +
+        "      visibleFeatures.add(scenarios[i].parentElement);\n" +
+        "    }\n" +
+        "  }\n" +
+        "  // Hide features with no visible scenarios\n" +
+        "  var features = document.getElementsByClassName('feature');\n" +
+        "  for (i = 0; i < features.length; i++) {\n" +
+        "    features[i].style.display = visibleFeatures.has(features[i]) ? '' : 'none';\n" +
+        "  }\n" +
+        "}, 150);\n";
+    
+    // Markup is compiled once into UTF-8 chunks; see HtmlTemplate for the placeholder syntax
+    private static final HtmlTemplate HEAD = HtmlTemplate.compile(
+        HEAD_START +
+        "  <style>\n" +
+        STYLES +
+        "  </style>\n" +
+        "</head>\n" +
+        "<body>\n");
+    private static final HtmlTemplate LINKED_HEAD = HtmlTemplate.compile(
+        HEAD_START +
+        "  <link rel=\"stylesheet\" href=\"{{stylesheet}}\">\n" +
+        "</head>\n" +
+        "<body>\n");
+    private static final HtmlTemplate TITLE = HtmlTemplate.compile("  <h1>Karate Test Report</h1>\n");
+    private static final HtmlTemplate LOGO_TITLE = HtmlTemplate.compile(
+        "  <div class=\"header\">\n" +
+        "    <img src=\"data:image/png;base64,{{&logo}}\" class=\"logo\" alt=\"Logo\">\n" +
+        "    <h1>Karate Test Report</h1>\n" +
+        "  </div>\n");
+    private static final HtmlTemplate SUMMARY = HtmlTemplate.compile(
+        "  <div class=\"summary\">\n" +
+        "    <p><strong>Total Features:</strong> <span id=\"summary-features\">{{features}}</span></p>\n" +
+        "    <p><strong>Scenarios:</strong> <span id=\"summary-scenarios\">{{scenarios}}</span></p>\n" +
+        "    <p><strong>Passed:</strong> <span id=\"summary-passed\">{{passed}}</span></p>\n" +
+        "    <p><strong>Failed:</strong> <span id=\"summary-failed\">{{failed}}</span></p>\n" +
+        "    <p><strong>Duration:</strong> <span id=\"summary-duration\">{{duration}}</span></p>\n" +
+        "  </div>\n");
+    private static final HtmlTemplate MERGED_SUMMARY = HtmlTemplate.compile(
+        "  <div class=\"summary\">\n" +
+        "    <p><strong>Total Features:</strong> <span id=\"summary-features\">{{features}}</span></p>\n" +
+        "    <p><strong>Scenarios:</strong> <span id=\"summary-scenarios\">{{scenarios}}</span></p>\n" +
+        "    <p><strong>Passed:</strong> <span id=\"summary-passed\">{{passed}}</span></p>\n" +
+        "    <p><strong>Failed:</strong> <span id=\"summary-failed\">{{failed}}</span></p>\n" +
+        "    <p><strong>Wall Time:</strong> <span id=\"summary-wall-time\">{{wallTime}}</span> (longest of {{shards}} shards)</p>\n" +
+        "    <p><strong>Summed Duration:</strong> <span id=\"summary-duration\">{{duration}}</span> (all features across shards)</p>\n" +
+        "  </div>\n");
+    private static final HtmlTemplate SEARCH_BOX = HtmlTemplate.compile(
+        "  <div class=\"search-box\">\n" +
+        "    <input type=\"text\" id=\"searchInput\" placeholder=\"Search test cases...\" onkeyup=\"searchTests()\">\n" +
+        "  </div>\n");
+    private static final HtmlTemplate TRENDS_START = HtmlTemplate.compile(
+        "  <div class=\"trends\">\n" +
+        "    <h2>Trends over the last {{runs}}{{&unit}}</h2>\n");
+    private static final HtmlTemplate SUBHEADING = HtmlTemplate.compile("    <h3>{{title}}</h3>\n");
+    private static final HtmlTemplate NO_TRENDS = HtmlTemplate.compile("    <p>None yet.</p>\n");
+    private static final HtmlTemplate TREND_TABLE_START = HtmlTemplate.compile(
+        "    <table>\n" +
+        "      <tr><th>Scenario</th><th>Runs</th><th>p50</th><th>p95</th><th>Latest</th><th>Growth per run</th><th>Flip rate</th></tr>\n");
+    private static final HtmlTemplate TREND_ROW = HtmlTemplate.compile(
+        "      <tr><td>{{key}}</td><td>{{samples}}</td><td>{{p50}} ms</td><td>{{p95}} ms</td><td>{{latest}} ms</td>" +
+        "<td>{{growth}}</td><td>{{flipRate}}</td></tr>\n");
+    private static final HtmlTemplate TABLE_END = HtmlTemplate.compile("    </table>\n");
+    private static final HtmlTemplate SECTION_END = HtmlTemplate.compile("  </div>\n");
+    private static final HtmlTemplate PERFORMANCE_START = HtmlTemplate.compile(
+        "  <div class=\"performance\" id=\"performance\">\n" +
+        "    <h2>Performance</h2>\n");
+    private static final HtmlTemplate PERCENTILES = HtmlTemplate.compile(
+        "    <p><strong>{{title}}:</strong> {{count}}, p50 {{p50}}, p95 {{p95}}, p99 {{p99}}, max {{max}}</p>\n");
+    private static final HtmlTemplate ENDPOINTS_START = HtmlTemplate.compile(
+        "    <h3>Endpoints by total time</h3>\n" +
+        "    <table>\n" +
+        "      <tr><th>Endpoint</th><th>Calls</th><th>Total</th><th>p50</th><th>p95</th><th>Max</th></tr>\n");
+    private static final HtmlTemplate ENDPOINT_ROW = HtmlTemplate.compile(
+        "      <tr><td>{{endpoint}}</td><td>{{calls}}</td><td>{{total}}</td><td>{{p50}}</td><td>{{p95}}</td><td>{{max}}</td></tr>\n");
+    private static final HtmlTemplate SLOWEST_START = HtmlTemplate.compile(
+        "    <h3>{{title}}</h3>\n" +
+        "    <table>\n" +
+        "      <tr><th>{{column}}</th><th>Duration</th></tr>\n");
+    private static final HtmlTemplate SLOWEST_ROW = HtmlTemplate.compile("      <tr><td>{{label}}</td><td>{{duration}}</td></tr>\n");
+    private static final HtmlTemplate HISTOGRAM_START = HtmlTemplate.compile(
+        "    <h3>{{title}}</h3>\n" +
+        "    <table>\n");
+    private static final HtmlTemplate HISTOGRAM_ROW = HtmlTemplate.compile(
+        "      <tr><td>{{lower}} &ndash; {{upper}}</td><td>{{count}}</td>" +
+        "<td style=\"width: 300px\"><div class=\"bar\" style=\"width: {{percent}}%\"></div></td></tr>\n");
+    private static final HtmlTemplate SEARCH_INDEX_START = HtmlTemplate.compile(
+        "<script type=\"application/json\" id=\"" + SearchIndex.ELEMENT_ID + "\">");
+    private static final HtmlTemplate SCRIPT_END = HtmlTemplate.compile("</script>\n");
+    private static final HtmlTemplate SCRIPT_BODY = HtmlTemplate.compile(SCRIPT_FUNCTIONS);
+    private static final HtmlTemplate SCRIPTS = HtmlTemplate.compile("<script>\n" + SCRIPT_FUNCTIONS + "</script>\n");
+    private static final HtmlTemplate END = HtmlTemplate.compile("</body>\n</html>");
+    private static final HtmlTemplate FEATURE_START = HtmlTemplate.compile(
+        "  <div class=\"feature\">\n" +
+        "    <div class=\"feature-header\">\n" +
+        "      <h2>{{name}}</h2>\n");
+    private static final HtmlTemplate TAGS_START = HtmlTemplate.compile("      <div class=\"tags\">\n");
+    private static final HtmlTemplate TAG = HtmlTemplate.compile("        <span class=\"tag\">{{tag}}</span>\n");
+    private static final HtmlTemplate TAGS_END = HtmlTemplate.compile("      </div>\n");
+    private static final HtmlTemplate HEADER_END = HtmlTemplate.compile("    </div>\n");
+    private static final HtmlTemplate SCENARIO_START = HtmlTemplate.compile(
+        "    <div class=\"scenario{{&compact}}\" data-doc=\"{{doc}}\">\n" +
+        "      <div class=\"scenario-header\">\n" +
+        "        <h3>{{name}}</h3>\n" +
+        "        <span style=\"color: {{&color}};\">{{&status}}</span>\n" +
+        "      </div>\n");
+    private static final HtmlTemplate STEPS_START = HtmlTemplate.compile("      <div class=\"steps\">\n");
+    private static final HtmlTemplate STEP_START = HtmlTemplate.compile(
+        "        <div class=\"step {{&status}}\">\n" +
+        "          <p>{{prefix}} {{text}}</p>\n");
+    private static final HtmlTemplate DETAILS_START = HtmlTemplate.compile(
+        "          <button class=\"toggle-btn\" onclick=\"toggleDetails('step-{{doc}}-{{step}}')\">Show/Hide Details</button>\n" +
+        "          <div id=\"step-{{doc}}-{{step}}\" class=\"step-details hidden\">\n");
+    private static final HtmlTemplate LOG_HEADING = HtmlTemplate.compile("            <h4>Log:</h4>\n");
+    private static final HtmlTemplate ERROR = HtmlTemplate.compile(
+        "            <h4>Error:</h4>\n" +
+        "            <pre>{{message}}</pre>\n");
+    private static final HtmlTemplate DETAILS_END = HtmlTemplate.compile("          </div>\n");
+    private static final HtmlTemplate STEP_END = HtmlTemplate.compile("        </div>\n");
+    private static final HtmlTemplate STEPS_END = HtmlTemplate.compile("      </div>\n");
+    // A passed scenario's steps in failure-first mode, gzip+base64 encoded until the button is first used
+    private static final HtmlTemplate DEFERRED_STEPS = HtmlTemplate.compile(
+        "      <button class=\"toggle-btn\" onclick=\"toggleSteps(this)\">Show/Hide Steps ({{steps}})</button>\n" +
+        "      <script type=\"application/gzip;base64\" class=\"deferred-steps\">{{&payload}}</script>\n");
+    private static final HtmlTemplate SCENARIO_END = HtmlTemplate.compile("    </div>\n");
+    // Markup scraped from a Karate feature report, kept as Karate rendered it
+    private static final HtmlTemplate SCRAPED_STEPS = HtmlTemplate.compile("      <div class=\"steps\">{{&html}}</div>\n");
+    private static final HtmlTemplate SCRAPED_CONTENT = HtmlTemplate.compile("    {{&html}}\n");
+    private static final HtmlTemplate FEATURE_END = HtmlTemplate.compile("  </div>\n");
+    private static final String COMPACT = " compact";
+    
+    public static class Options {
+        
+        boolean compressPayloads;
+        int maxPayloadChars;
+        String trendDir;
+        int trendWindow = 30;
+        int maxTrendRuns = 1000;
+        String runId;
+        ReportMetrics metrics = ReportMetrics.DISABLED;
+        OutputLayout layout = OutputLayout.AUTO;
+        int shardThreshold = 5000;
+        int scenariosPerPage = 500;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        boolean failureFirst;
+        
+        /** Embed step payloads gzip+base64 encoded, inflated in the browser when their details are opened. */
+        public Options compressPayloads(boolean compressPayloads) {
+            this.compressPayloads = compressPayloads;
+            return this;
+        }
+        
+        /** Truncate step payloads longer than this many characters; zero or less keeps them whole. */
+        public Options maxPayloadChars(int maxPayloadChars) {
+            this.maxPayloadChars = maxPayloadChars;
+            return this;
+        }
+        
+        /** Record every run in a trend store in this directory and report trends across runs; null turns trends off. */
+        public Options trendDir(String trendDir) {
+            this.trendDir = trendDir;
+            return this;
+        }
+        
+        /** Record trends in the default store under target/. */
+        public Options trends() {
+            return trendDir(TrendStore.DEFAULT_DIR);
+        }
+        
+        /** Number of most recent runs, this one included, that trends are computed over. */
+        public Options trendWindow(int trendWindow) {
+            if (trendWindow < 2) {
+                throw new IllegalArgumentException("trendWindow must be at least 2: " + trendWindow);
+            }
+            this.trendWindow = trendWindow;
+            return this;
+        }
+        
+        /** Runs kept in the trend store; older ones are deleted. */
+        public Options maxTrendRuns(int maxTrendRuns) {
+            if (maxTrendRuns < 1) {
+                throw new IllegalArgumentException("maxTrendRuns must be at least 1: " + maxTrendRuns);
+            }
+            this.maxTrendRuns = maxTrendRuns;
+            return this;
+        }
+        
+        /**
+         * Identifies the run in the trend store, e.g. by build number, so that every shard or merge
+         * of one build adds to a single run; without an id each report is a run of its own.
+         */
+        public Options runId(String runId) {
+            TrendStore.checkRunId(runId);
+            this.runId = runId;
+            return this;
+        }
+        
+        /** Record timings and I/O counters of the report generation in the given metrics. */
+        public Options metrics(ReportMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+        
+        /** Single file, sharded pages, or sharded only for runs above the shard threshold (the default). */
+        public Options layout(OutputLayout layout) {
+            this.layout = layout;
+            return this;
+        }
+        
+        /** Number of scenarios above which the {@link OutputLayout#AUTO} layout shards the report. */
+        public Options shardThreshold(int shardThreshold) {
+            this.shardThreshold = shardThreshold;
+            return this;
+        }
+        
+        /** A sharded report starts a new page once a page holds this many scenarios; features are never split. */
+        public Options scenariosPerPage(int scenariosPerPage) {
+            if (scenariosPerPage < 1) {
+                throw new IllegalArgumentException("scenariosPerPage must be at least 1: " + scenariosPerPage);
+            }
+            this.scenariosPerPage = scenariosPerPage;
+            return this;
+        }
+        
+        /** Number of threads writing the pages of a sharded report. */
+        public Options parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+        
+        /**
+         * Render failed scenarios in full and passed ones as compact rows, their steps embedded
+         * gzip+base64 encoded and inflated in the browser when first shown.
+         */
+        public Options failureFirst(boolean failureFirst) {
+            this.failureFirst = failureFirst;
+            return this;
+        }
+        
+        boolean sharded(int scenarioCount) {
+            return layout == OutputLayout.SHARDED || (layout == OutputLayout.AUTO && scenarioCount > shardThreshold);
+        }
+    }
+    
+    public static void generateReport(Results results) {
+        generateReport(results, new Options());
+    }
+    
+    public static void generateReport(Results results, Options options) {
+        File reportDir = new File(REPORT_DIR);
+        if (!reportDir.exists()) {
+            reportDir.mkdirs();
+        }
+        File reportFile = new File(reportDir, REPORT_FILE_NAME);
+        
+        if (options.sharded(results.getScenariosTotal())) {
+            try {
+                ShardedHtmlReport.write(results, reportFile.toPath(), options);
+            } catch (IOException | UncheckedIOException e) {
+                logger.error("Failed to write the sharded HTML report", e);
+                return;
+            }
+            options.metrics.publish(reportFile.toPath());
+            logger.info("Sharded HTML report generated at: {}", reportFile.getAbsolutePath());
+            return;
+        }
+        
+        // Stream the report straight to disk so heap use does not grow with the number of scenarios
+        ReportMetrics metrics = options.metrics;
+        long start = metrics.start();
+        long writeNanos = metrics.phaseNanos(ReportMetrics.Phase.WRITE);
+        try (HtmlOutput html = openWriter(metrics.meter(Files.newOutputStream(reportFile.toPath())))) {
+            writeReport(results, html, options);
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Failed to write the single file HTML report", e);
+            return;
+        }
+        try {
+            ShardedHtmlReport.deleteOutputDirs(reportFile.toPath());
+        } catch (IOException e) {
+            logger.warn("Failed to delete the pages of an earlier sharded report next to {}", reportFile, e);
+        }
+        // The report is rendered straight into the file, so everything but the disk writes counts as rendering
+        if (metrics.enabled()) {
+            long elapsed = System.nanoTime() - start;
+            metrics.add(ReportMetrics.Phase.RENDER, elapsed - (metrics.phaseNanos(ReportMetrics.Phase.WRITE) - writeNanos));
+            metrics.publish(reportFile.toPath());
+        }
+        logger.info("Single file HTML report generated at: {}", reportFile.getAbsolutePath());
+    }
+    
+    static HtmlOutput openWriter(OutputStream out) {
+        return new HtmlOutput(out, WRITE_BUFFER_SIZE);
+    }
+    
+    static void writeReport(Results results, HtmlOutput html, Options options) throws IOException {
+        writeHeader(html);
+        writeSummary(html, results.getFeaturesTotal(), results.getScenariosTotal(),
+                results.getScenariosPassed(), results.getScenariosFailed(), durationNanos(results));
+        
+        // Feature results are read back from disk one at a time, so each pass is a fresh stream
+        TrendStore trendStore = openTrendStore(options);
+        if (trendStore != null) {
+            try (Stream<FeatureResult> featureResults = featureResults(results)) {
+                featureResults.forEach(trendStore::record);
+            }
+            writeTrends(html, trendStore, options);
+        }
+        
+        // Feature details
+        ReportContext context = new ReportContext(options);
+        try (Stream<FeatureResult> featureResults = featureResults(results)) {
+            for (FeatureResult featureResult : (Iterable<FeatureResult>) featureResults::iterator) {
+                writeFeature(featureResult, html, context);
+            }
+        }
+        
+        writeFooter(html, context);
+    }
+    
+    /**
+     * Streams the run's feature results, reading each from the json file Karate saved for it only
+     * when it is reached. {@link Results#getFeatureResults()} sorts inside its stream, which makes
+     * an iterator over it read every result into memory before returning the first.
+     */
+    static Stream<FeatureResult> featureResults(Results results) {
+        File workingDir = results.getSuite().workingDir;
+        return resultFiles(results).stream().map(file -> {
+            try {
+                return readFeatureResult(workingDir, file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    /** Returns the json files Karate saved the run's feature results to, in the order it reports them. */
+    static List<File> resultFiles(Results results) {
+        List<File> resultFiles = new ArrayList<>(results.getSuite().featureResultFiles);
+        Collections.sort(resultFiles);
+        return resultFiles;
+    }
+    
+    @SuppressWarnings("unchecked")
+    static FeatureResult readFeatureResult(File workingDir, File resultFile) throws IOException {
+        String json = new String(Files.readAllBytes(resultFile.toPath()), StandardCharsets.UTF_8);
+        return FeatureResult.fromKarateJson(workingDir, (Map<String, Object>) JsonUtils.fromJson(json));
+    }
+    
+    /** Returns the run's elapsed wall-clock time in nanoseconds. */
+    static long durationNanos(Results results) {
+        return (long) (results.getElapsedTime() * 1000000);
+    }
+    
+    /** Writes the document head, styles and page title. */
+    static void writeHeader(HtmlOutput html) throws IOException {
+        writeHead(html, null);
+        writeTitle(html);
+    }
+    
+    /** Opens the document and writes its head, with the styles inline or, given a stylesheet URL, linked. */
+    static void writeHead(HtmlOutput html, String stylesheet) throws IOException {
+        if (stylesheet == null) {
+            HEAD.render(html);
+        } else {
+            LINKED_HEAD.render(html, stylesheet);
+        }
+    }
+    
+    /** Writes the page title, with the project logo if there is one. */
+    static void writeTitle(HtmlOutput html) throws IOException {
+        // Embed logo as base64 (optional)
+        try {
+            String logoPath = "src/test/resources/logo.png"; // Path to your logo
+            if (Files.exists(Paths.get(logoPath))) {
+                byte[] logoBytes = Files.readAllBytes(Paths.get(logoPath));
+                LOGO_TITLE.render(html, Base64.getEncoder().encodeToString(logoBytes));
+            } else {
+                TITLE.render(html);
+            }
+        } catch (IOException e) {
+            TITLE.render(html);
+        }
+    }
+    
+    /** Writes the summary counters and the search box. */
+    static void writeSummary(HtmlOutput html, int featureCount, int scenarioCount, int passCount, int failCount,
+                             long durationNanos) throws IOException {
+        writeSummaryCounters(html, featureCount, scenarioCount, passCount, failCount, durationNanos);
+        writeSearchBox(html);
+    }
+    
+    static void writeSummaryCounters(HtmlOutput html, int featureCount, int scenarioCount, int passCount, int failCount,
+                                     long durationNanos) throws IOException {
+        SUMMARY.render(html, featureCount, scenarioCount, passCount, failCount, formatDuration(durationNanos));
+    }
+    
+    /**
+     * Writes the summary of a report merged from parallel shards, which has no single elapsed
+     * time: the wall time is the longest shard's, the duration the sum over every feature.
+     */
+    static void writeMergedSummary(HtmlOutput html, int featureCount, int scenarioCount, int passCount, int failCount,
+                                   int shardCount, long wallNanos, long summedNanos) throws IOException {
+        MERGED_SUMMARY.render(html, featureCount, scenarioCount, passCount, failCount,
+                formatDuration(wallNanos), shardCount, formatDuration(summedNanos));
+        writeSearchBox(html);
+    }
+    
+    /** Writes the box searching the scenarios of the page. */
+    static void writeSearchBox(HtmlOutput html) throws IOException {
+        SEARCH_BOX.render(html);
+    }
+    
+    /** Opens the trend store the options ask for, or returns null if trends are off or the store is unusable. */
+    static TrendStore openTrendStore(Options options) {
+        if (options.trendDir == null) {
+            return null;
+        }
+        try {
+            return TrendStore.open(Paths.get(options.trendDir), options.runId);
+        } catch (IOException e) {
+            logger.warn("Trend store {} is unavailable, skipping trends", options.trendDir, e);
+            return null;
+        }
+    }
+    
+    /** Commits the recorded run to the trend store and writes the trends section; a store failure only drops the section. */
+    static void writeTrends(HtmlOutput html, TrendStore trendStore, Options options) throws IOException {
+        TrendStore.Trends trends;
+        try {
+            trends = trendStore.commit(options.trendWindow, options.maxTrendRuns);
+        } catch (IOException e) {
+            logger.warn("Failed to update the trend store, skipping trends", e);
+            return;
+        }
+        TRENDS_START.render(html, trends.runs, trends.runs == 1 ? " run" : " runs");
+        writeTrendTable(html, "Slowest-growing scenarios", trends.growing);
+        writeTrendTable(html, "Flip-flopping scenarios", trends.flaky);
+        writeTrendTable(html, "Slowest scenarios by p95", trends.slowest);
+        SECTION_END.render(html);
+    }
+    
+    private static void writeTrendTable(HtmlOutput html, String title, List<TrendStore.Row> rows) throws IOException {
+        SUBHEADING.render(html, title);
+        if (rows.isEmpty()) {
+            NO_TRENDS.render(html);
+            return;
+        }
+        TREND_TABLE_START.render(html);
+        for (TrendStore.Row row : rows) {
+            TREND_ROW.render(html, row.key, row.samples, row.p50Millis, row.p95Millis, row.latestMillis,
+                    String.format("%+.1f ms", row.growthMillisPerRun), String.format("%.0f%%", row.flipRate * 100));
+        }
+        TABLE_END.render(html);
+    }
+    
+    /** Writes the performance section, the search index and scripts, and closes the document. */
+    static void writeFooter(HtmlOutput html, ReportContext context) throws IOException {
+        writePerformance(html, context.timings);
+        writeSearchIndex(html, context);
+        writeScripts(html);
+        writeEnd(html);
+    }
+    
+    /** Writes where the run spent its time: the slowest scenarios, steps and endpoints and the duration histograms. */
+    static void writePerformance(HtmlOutput html, TimingStats timings) throws IOException {
+        PERFORMANCE_START.render(html);
+        writePercentiles(html, "Scenarios", timings.scenarios);
+        writePercentiles(html, "Steps", timings.steps);
+        
+        writeSlowest(html, "Slowest scenarios", "Scenario", timings.slowestScenarios);
+        writeSlowest(html, "Slowest steps", "Step", timings.slowestSteps);
+        
+        List<Map.Entry<String, LatencyHistogram>> endpoints = timings.topEndpoints();
+        if (!endpoints.isEmpty()) {
+            ENDPOINTS_START.render(html);
+            for (Map.Entry<String, LatencyHistogram> endpoint : endpoints) {
+                LatencyHistogram histogram = endpoint.getValue();
+                ENDPOINT_ROW.render(html, endpoint.getKey(), histogram.count(), formatMillis(histogram.totalNanos()),
+                        formatMillis(histogram.percentileNanos(0.50)), formatMillis(histogram.percentileNanos(0.95)),
+                        formatMillis(histogram.maxNanos()));
+            }
+            TABLE_END.render(html);
+        }
+        
+        writeHistogram(html, "Scenario durations", timings.scenarios);
+        writeHistogram(html, "Step durations", timings.steps);
+        SECTION_END.render(html);
+    }
+    
+    private static void writePercentiles(HtmlOutput html, String title, LatencyHistogram histogram) throws IOException {
+        PERCENTILES.render(html, title, histogram.count(), formatMillis(histogram.percentileNanos(0.50)),
+                formatMillis(histogram.percentileNanos(0.95)), formatMillis(histogram.percentileNanos(0.99)),
+                formatMillis(histogram.maxNanos()));
+    }
+    
+    private static void writeSlowest(HtmlOutput html, String title, String column, TimingStats.Slowest slowest) throws IOException {
+        if (slowest.size == 0) {
+            return;
+        }
+        SLOWEST_START.render(html, title, column);
+        for (int i = 0; i < slowest.size; i++) {
+            SLOWEST_ROW.render(html, slowest.labels[i], formatMillis(slowest.nanos[i]));
+        }
+        TABLE_END.render(html);
+    }
+    
+    private static void writeHistogram(HtmlOutput html, String title, LatencyHistogram histogram) throws IOException {
+        if (histogram.count() == 0) {
+            return;
+        }
+        long[] counts = histogram.powerOfTwoCounts();
+        int first = 0;
+        int last = counts.length - 1;
+        long highest = 0;
+        while (counts[first] == 0) {
+            first++;
+        }
+        while (counts[last] == 0) {
+            last--;
+        }
+        for (long count : counts) {
+            highest = Math.max(highest, count);
+        }
+        HISTOGRAM_START.render(html, title);
+        for (int i = first; i <= last; i++) {
+            long lower = i == 0 ? 0 : 1L << (i - 1);
+            HISTOGRAM_ROW.render(html, formatMicros(lower), formatMicros(1L << i), counts[i], counts[i] * 100 / highest);
+        }
+        TABLE_END.render(html);
+    }
+    
+    /** Writes the search index, queried instead of scanning the DOM. */
+    static void writeSearchIndex(HtmlOutput html, ReportContext context) throws IOException {
+        writeSearchIndex(html, context.searchIndex);
+    }
+    
+    static void writeSearchIndex(HtmlOutput html, SearchIndex searchIndex) throws IOException {
+        SEARCH_INDEX_START.render(html);
+        searchIndex.writeJson(html);
+        SCRIPT_END.render(html);
+    }
+    
+    /** Writes the report's JavaScript functions, none of which touch the DOM until called. */
+    static void writeScripts(HtmlOutput html) throws IOException {
+        SCRIPTS.render(html);
+    }
+    
+    /** Writes the functions of {@link #writeScripts} without the script element, for a shared script file. */
+    static void writeScriptBody(HtmlOutput html) throws IOException {
+        SCRIPT_BODY.render(html);
+    }
+    
+    static void writeEnd(HtmlOutput html) throws IOException {
+        END.render(html);
+    }
+    
+    static void writeFeature(FeatureResult featureResult, HtmlOutput html, ReportContext context) throws IOException {
+        Feature feature = featureResult.getFeature();
+        SearchIndex searchIndex = context.searchIndex;
+        
+        FEATURE_START.render(html, feature.getName());
+        
+        // Feature tags
+        List<String> featureTags = tagNames(feature.getTags());
+        writeTags(html, featureTags);
+        
+        HEADER_END.render(html);
+        
+        // Scenarios
+        List<ScenarioResult> scenarioResults = featureResult.getScenarioResults();
+        for (ScenarioResult scenarioResult : scenarioResults) {
+            Scenario scenario = scenarioResult.getScenario();
+            boolean passed = !scenarioResult.isFailed();
+            context.timings.beginScenario(feature.getName(), scenario.getName());
+            
+            // Each scenario is one search document, matched on its feature as well as its own text
+            int doc = searchIndex.newDocument();
+            searchIndex.add(doc, feature.getName());
+            searchIndex.add(doc, scenario.getName());
+            if (featureTags != null) {
+                for (String tag : featureTags) {
+                    searchIndex.add(doc, tag);
+                }
+            }
+            
+            List<String> scenarioTags = tagNames(scenario.getTags());
+            if (scenarioTags != null) {
+                for (String tag : scenarioTags) {
+                    searchIndex.add(doc, tag);
+                }
+            }
+            
+            if (passed && context.deferredSteps != null) {
+                // Rendered first so that payloads new to the report are stored ahead of the row
+                HtmlOutput steps = context.deferredSteps;
+                writeSteps(scenarioResult, doc, steps, html, context);
+                steps.flush();
+                byte[] markup = context.deferredBuffer.toByteArray();
+                context.deferredBuffer.reset();
+                context.options.metrics.buffer(markup.length);
+                
+                SCENARIO_START.render(html, COMPACT, doc, scenario.getName(), "green", "PASSED");
+                writeTags(html, scenarioTags);
+                DEFERRED_STEPS.render(html, scenarioResult.getStepResults().size(), GzipBase64.encode(markup));
+            } else {
+                SCENARIO_START.render(html, null, doc, scenario.getName(), passed ? "green" : "red", passed ? "PASSED" : "FAILED");
+                writeTags(html, scenarioTags);
+                writeSteps(scenarioResult, doc, html, html, context);
+            }
+            SCENARIO_END.render(html);
+            context.timings.endScenario(scenarioResult.getDurationNanos());
+        }
+        
+        FEATURE_END.render(html);
+    }
+    
+    /**
+     * Writes a feature scraped from a Karate HTML report the way {@link #writeFeature} writes one
+     * read from JSON, so that it is searched and timed alongside them; only its steps are Karate's markup.
+     */
+    static void writeScrapedFeature(ScrapedFeature feature, HtmlOutput html, ReportContext context) throws IOException {
+        SearchIndex searchIndex = context.searchIndex;
+        FEATURE_START.render(html, feature.name);
+        HEADER_END.render(html);
+        if (feature.html != null) {
+            SCRAPED_CONTENT.render(html, feature.html);
+        }
+        for (ScrapedFeature.ScrapedScenario scenario : feature.scenarios) {
+            context.timings.beginScenario(feature.name, scenario.name);
+            int doc = searchIndex.newDocument();
+            searchIndex.add(doc, feature.name);
+            searchIndex.add(doc, scenario.text);
+            SCENARIO_START.render(html, null, doc, scenario.name, scenario.failed ? "red" : "green",
+                    scenario.failed ? "FAILED" : "PASSED");
+            SCRAPED_STEPS.render(html, scenario.html);
+            SCENARIO_END.render(html);
+            context.timings.endScenario(scenario.durationNanos);
+        }
+        FEATURE_END.render(html);
+    }
+    
+    /**
+     * Writes a scenario's steps, recording their timings and search text. Payloads new to the
+     * report are stored through {@code payloads}, which differs from {@code html} when the steps
+     * are deferred.
+     */
+    private static void writeSteps(ScenarioResult scenarioResult, int doc, HtmlOutput html, HtmlOutput payloads,
+                                   ReportContext context) throws IOException {
+        SearchIndex searchIndex = context.searchIndex;
+        
+        // Detail ids derive from the scenario's unique document id
+        STEPS_START.render(html);
+        List<StepResult> stepResults = scenarioResult.getStepResults();
+        for (int i = 0; i < stepResults.size(); i++) {
+            StepResult stepResult = stepResults.get(i);
+            Step step = stepResult.getStep();
+            boolean stepPassed = !stepResult.isFailed();
+            if (stepResult.getResult() != null) {
+                context.timings.recordStep(step.getText(), stepResult.getResult().getDurationNanos());
+            }
+            searchIndex.add(doc, step.getText());
+            searchIndex.add(doc, stepResult.getErrorMessage());
+            
+            STEP_START.render(html, stepPassed ? "pass" : "fail", step.getPrefix(), step.getText());
+            
+            // Include the step log, which carries the request/response of API steps, if there is one
+            String stepLog = stepResult.getStepLog();
+            boolean hasLog = stepLog != null && !stepLog.isEmpty();
+            if (hasLog || stepResult.getErrorMessage() != null) {
+                DETAILS_START.render(html, doc, i);
+                
+                if (hasLog) {
+                    LOG_HEADING.render(html);
+                    String payload = stepLog;
+                    context.options.metrics.buffer(payload.length());
+                    context.payloads.write(payload, html, payloads, "            ");
+                }
+                
+                if (stepResult.getErrorMessage() != null) {
+                    ERROR.render(html, stepResult.getErrorMessage());
+                }
+                
+                DETAILS_END.render(html);
+            }
+            
+            STEP_END.render(html);
+        }
+        STEPS_END.render(html);
+    }
+    
+    /** Returns the tags as written in the feature file, with their leading {@code @}. */
+    static List<String> tagNames(List<Tag> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return null;
+        }
+        List<String> names = new ArrayList<>(tags.size());
+        for (Tag tag : tags) {
+            names.add(tag.toString());
+        }
+        return names;
+    }
+    
+    private static void writeTags(HtmlOutput html, List<String> tags) throws IOException {
+        if (tags == null || tags.isEmpty()) {
+            return;
+        }
+        TAGS_START.render(html);
+        for (String tag : tags) {
+            TAG.render(html, tag);
+        }
+        TAGS_END.render(html);
+    }
+    
+    private static String formatMillis(long nanos) {
+        return String.format("%.1f ms", nanos / 1e6);
+    }
+    
+    private static String formatMicros(long micros) {
+        if (micros < 1000) {
+            return micros + " \u00b5s";
+        }
+        if (micros < 1000000) {
+            return (micros / 1000) + " ms";
+        }
+        return String.format("%.1f s", micros / 1e6);
+    }
+    
+    static String formatDuration(long nanos) {
+        long millis = nanos / 1000000;
+        long seconds = millis / 1000;
+        long minutes = seconds / 60;
+        long hours = minutes / 60;
+        
+        return String.format("%02d:%02d:%02d.%03d", 
+                hours, minutes % 60, seconds % 60, millis % 1000);
+    }
+}
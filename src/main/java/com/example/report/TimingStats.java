@@ -0,0 +1,137 @@
+package com.example.report;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Timings collected while a single-file report is written: histograms of scenario and step
+ * durations, the slowest scenarios and steps, and the time spent per HTTP endpoint. A step
+ * that runs {@code method} is attributed to the endpoint made of the method and the
+ * {@code url} and {@code path} steps before it, as written in the feature.
+ */
+final class TimingStats {
+
+    static final int TOP = 10;
+
+    final LatencyHistogram scenarios = new LatencyHistogram();
+    final LatencyHistogram steps = new LatencyHistogram();
+    final Slowest slowestScenarios = new Slowest(TOP);
+    final Slowest slowestSteps = new Slowest(TOP);
+    private final Map<String, LatencyHistogram> endpoints = new HashMap<>();
+
+    // The scenario being recorded
+    private String scenarioLabel;
+    private String url;
+    private String path;
+
+    /** The largest durations offered so far with their labels, kept in descending order. */
+    static final class Slowest {
+        final long[] nanos;
+        final String[] labels;
+        int size;
+
+        Slowest(int capacity) {
+            nanos = new long[capacity];
+            labels = new String[capacity];
+        }
+
+        /** Whether a duration would make the list, so that labels are only built when needed. */
+        boolean accepts(long duration) {
+            return size < nanos.length || duration > nanos[size - 1];
+        }
+
+        void add(long duration, String label) {
+            if (!accepts(duration)) {
+                return;
+            }
+            int i = size < nanos.length ? size++ : size - 1;
+            while (i > 0 && nanos[i - 1] < duration) {
+                nanos[i] = nanos[i - 1];
+                labels[i] = labels[i - 1];
+                i--;
+            }
+            nanos[i] = duration;
+            labels[i] = label;
+        }
+    }
+
+    void beginScenario(String featureName, String scenarioName) {
+        scenarioLabel = featureName + " :: " + scenarioName;
+        url = null;
+        path = null;
+    }
+
+    void recordStep(String text, long durationNanos) {
+        steps.record(durationNanos);
+        if (slowestSteps.accepts(durationNanos)) {
+            slowestSteps.add(durationNanos, scenarioLabel + " :: " + text);
+        }
+        if (text == null) {
+            return;
+        }
+        if (text.startsWith("url ")) {
+            url = literal(text.substring(4));
+            path = null;
+        } else if (text.startsWith("path ")) {
+            path = path == null ? literal(text.substring(5)) : path + "/" + literal(text.substring(5));
+        } else if (text.startsWith("method ")) {
+            String endpoint = text.substring(7).trim().toUpperCase(Locale.ROOT) + " " + join(url, path);
+            endpoints.computeIfAbsent(endpoint, key -> new LatencyHistogram()).record(durationNanos);
+            // Karate clears the path after each request
+            path = null;
+        }
+    }
+
+    void endScenario(long durationNanos) {
+        scenarios.record(durationNanos);
+        slowestScenarios.add(durationNanos, scenarioLabel);
+    }
+
+    /** Adds the timings collected by another report section, such as one page of a sharded report. */
+    void addAll(TimingStats other) {
+        scenarios.add(other.scenarios);
+        steps.add(other.steps);
+        for (int i = 0; i < other.slowestScenarios.size; i++) {
+            slowestScenarios.add(other.slowestScenarios.nanos[i], other.slowestScenarios.labels[i]);
+        }
+        for (int i = 0; i < other.slowestSteps.size; i++) {
+            slowestSteps.add(other.slowestSteps.nanos[i], other.slowestSteps.labels[i]);
+        }
+        for (Map.Entry<String, LatencyHistogram> endpoint : other.endpoints.entrySet()) {
+            endpoints.computeIfAbsent(endpoint.getKey(), key -> new LatencyHistogram()).add(endpoint.getValue());
+        }
+    }
+
+    /** Endpoints by total time spent in them, the most expensive first. */
+    List<Map.Entry<String, LatencyHistogram>> topEndpoints() {
+        List<Map.Entry<String, LatencyHistogram>> sorted = new ArrayList<>(endpoints.entrySet());
+        sorted.sort((a, b) -> Long.compare(b.getValue().totalNanos(), a.getValue().totalNanos()));
+        return sorted.subList(0, Math.min(TOP, sorted.size()));
+    }
+
+    private static String join(String url, String path) {
+        if (path == null) {
+            return url == null ? "" : url;
+        }
+        if (url == null) {
+            return path;
+        }
+        return url.endsWith("/") || path.startsWith("/") ? url + path : url + "/" + path;
+    }
+
+    /** Strips the quotes of a single string literal; expressions are kept as written. */
+    private static String literal(String expression) {
+        String value = expression.trim();
+        if (value.length() >= 2) {
+            char quote = value.charAt(0);
+            if ((quote == '\'' || quote == '"') && value.charAt(value.length() - 1) == quote
+                    && value.indexOf(quote, 1) == value.length() - 1) {
+                return value.substring(1, value.length() - 1);
+            }
+        }
+        return value;
+    }
+}
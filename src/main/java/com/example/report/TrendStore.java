@@ -0,0 +1,516 @@
+package com.example.report;
+
+import com.intuit.karate.core.Feature;
+import com.intuit.karate.core.FeatureResult;
+import com.intuit.karate.core.Scenario;
+import com.intuit.karate.core.ScenarioResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only history of scenario outcomes, so that duration regressions and flaky scenarios
+ * can be reported without reading old reports. Scenarios are identified by the feature's
+ * relative path plus the scenario name, and each key is stored once in {@code scenarios.txt};
+ * its line number is the scenario id. Every run is one file of three columns: scenario ids,
+ * durations in milliseconds and failure flags. Trends read only the most recent runs, straight
+ * into primitive arrays.
+ *
+ * <p>A lock file serializes commits, so shards running in separate JVMs can share a store. Each
+ * commit is a run of its own unless a run id, such as the build number, is given: commits with
+ * the same id are merged into one run, so shards of one build count once in the trends. New keys
+ * are forced to disk before the run that refers to them, and a partial last key left by a crash
+ * is truncated when the keys are next read.
+ */
+final class TrendStore {
+
+    static final String DEFAULT_DIR = "target/karate-trends";
+
+    private static final String KEYS_FILE = "scenarios.txt";
+    private static final String LOCK_FILE = ".lock";
+    private static final String RUN_FILE_PREFIX = "run-";
+    private static final String RUN_FILE_SUFFIX = ".bin";
+    private static final int MAGIC = 0x4b545244;
+    private static final int FORMAT = 2;
+    /** Run files written before run ids, which are read but never merged into. */
+    private static final int FORMAT_WITHOUT_RUN_ID = 1;
+    private static final int MAX_RUN_ID_LENGTH = 255;
+    /** Rows shown in each trends table. */
+    private static final int TOP_ROWS = 10;
+
+    private final Path dir;
+    private final String runId;
+
+    // The run being recorded, with ids local to this run until it is committed
+    private final List<String> runKeys = new ArrayList<>();
+    private final Map<String, Integer> runKeyIds = new HashMap<>();
+    private int[] runIds = new int[256];
+    private int[] runMillis = new int[256];
+    private byte[] runFailed = new byte[256];
+    private int runSize;
+    private final long runStarted = System.currentTimeMillis();
+
+    /** One trends table row: the statistics of a scenario over the runs it appeared in. */
+    static final class Row {
+        final String key;
+        final int samples;
+        final int p50Millis;
+        final int p95Millis;
+        final int latestMillis;
+        /** Least-squares slope of the duration over the runs, in milliseconds per run. */
+        final double growthMillisPerRun;
+        /** Share of consecutive samples whose outcome differs from the one before. */
+        final double flipRate;
+
+        Row(String key, int samples, int p50Millis, int p95Millis, int latestMillis, double growthMillisPerRun, double flipRate) {
+            this.key = key;
+            this.samples = samples;
+            this.p50Millis = p50Millis;
+            this.p95Millis = p95Millis;
+            this.latestMillis = latestMillis;
+            this.growthMillisPerRun = growthMillisPerRun;
+            this.flipRate = flipRate;
+        }
+    }
+
+    /** The trends over a window of runs, ending with the run just committed. */
+    static final class Trends {
+        final int runs;
+        final List<Row> growing;
+        final List<Row> flaky;
+        final List<Row> slowest;
+
+        Trends(int runs, List<Row> growing, List<Row> flaky, List<Row> slowest) {
+            this.runs = runs;
+            this.growing = growing;
+            this.flaky = flaky;
+            this.slowest = slowest;
+        }
+    }
+
+    /** The columns of one stored run. */
+    private static final class Run {
+        final long started;
+        final String runId;
+        final int[] ids;
+        final int[] millis;
+        final byte[] failed;
+
+        Run(long started, String runId, int[] ids, int[] millis, byte[] failed) {
+            this.started = started;
+            this.runId = runId;
+            this.ids = ids;
+            this.millis = millis;
+            this.failed = failed;
+        }
+    }
+
+    private TrendStore(Path dir, String runId) {
+        this.dir = dir;
+        this.runId = runId;
+    }
+
+    static TrendStore open(Path dir) throws IOException {
+        return open(dir, null);
+    }
+
+    /** Opens the store for a run that commits merge into any earlier run of the same id; null makes every commit a run. */
+    static TrendStore open(Path dir, String runId) throws IOException {
+        checkRunId(runId);
+        Files.createDirectories(dir);
+        return new TrendStore(dir, runId);
+    }
+
+    static void checkRunId(String runId) {
+        if (runId != null && (runId.isEmpty() || runId.length() > MAX_RUN_ID_LENGTH)) {
+            throw new IllegalArgumentException("runId must be 1 to " + MAX_RUN_ID_LENGTH + " characters: " + runId);
+        }
+    }
+
+    /** Adds every scenario of the feature to the run being recorded. */
+    void record(FeatureResult featureResult) {
+        Feature feature = featureResult.getFeature();
+        String featurePath = feature.getResource().getRelativePath();
+        for (ScenarioResult scenarioResult : featureResult.getScenarioResults()) {
+            Scenario scenario = scenarioResult.getScenario();
+            String key = featurePath + " :: " + scenario.getName();
+            if (scenario.getExampleIndex() >= 0) {
+                // Outline examples share a name, so their position tells them apart
+                key += " [" + (scenario.getExampleIndex() + 1) + "]";
+            }
+            record(key, scenarioResult.getDurationNanos(), scenarioResult.isFailed());
+        }
+    }
+
+    void record(String key, long durationNanos, boolean failed) {
+        // Keys are stored one per line
+        String storedKey = key.replace('\n', ' ').replace('\r', ' ');
+        Integer id = runKeyIds.get(storedKey);
+        if (id == null) {
+            id = runKeys.size();
+            runKeys.add(storedKey);
+            runKeyIds.put(storedKey, id);
+        }
+        if (runSize == runIds.length) {
+            runIds = Arrays.copyOf(runIds, runSize * 2);
+            runMillis = Arrays.copyOf(runMillis, runSize * 2);
+            runFailed = Arrays.copyOf(runFailed, runSize * 2);
+        }
+        runIds[runSize] = id;
+        runMillis[runSize] = (int) Math.min(Integer.MAX_VALUE, durationNanos / 1_000_000);
+        runFailed[runSize] = (byte) (failed ? 1 : 0);
+        runSize++;
+    }
+
+    /**
+     * Stores the recorded run, or merges it into the stored run of the same run id, deletes runs
+     * beyond {@code maxRuns}, and returns the trends over the last {@code window} runs including
+     * this one.
+     */
+    Trends commit(int window, int maxRuns) throws IOException {
+        try (FileChannel lockChannel = FileChannel.open(dir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Held until the channel is closed
+            lockChannel.lock();
+            List<String> keys = readKeys();
+            int[] globalIds = assignIds(keys);
+            int[] ids = new int[runSize];
+            for (int i = 0; i < runSize; i++) {
+                ids[i] = globalIds[runIds[i]];
+            }
+            Run recorded = new Run(runStarted, runId, ids, Arrays.copyOf(runMillis, runSize), Arrays.copyOf(runFailed, runSize));
+            Path sameRun = runId == null ? null : findRun(runId);
+            Run stored = sameRun == null ? null : readRun(sameRun, keys.size());
+            if (stored != null) {
+                writeRun(merge(stored, recorded), sameRun);
+            } else {
+                writeRun(recorded, null);
+            }
+            List<Path> runFiles = listRunFiles();
+            while (runFiles.size() > maxRuns) {
+                Files.deleteIfExists(runFiles.remove(0));
+            }
+            List<Run> runs = new ArrayList<>();
+            for (Path runFile : runFiles.subList(Math.max(0, runFiles.size() - window), runFiles.size())) {
+                Run run = readRun(runFile, keys.size());
+                if (run != null) {
+                    runs.add(run);
+                }
+            }
+            return analyze(runs, keys);
+        }
+    }
+
+    /** Reads the keys, truncating a last line without its newline: an append cut short, that no run refers to. */
+    private List<String> readKeys() throws IOException {
+        List<String> keys = new ArrayList<>();
+        Path keysFile = dir.resolve(KEYS_FILE);
+        if (!Files.exists(keysFile)) {
+            return keys;
+        }
+        byte[] bytes = Files.readAllBytes(keysFile);
+        int complete = bytes.length;
+        while (complete > 0 && bytes[complete - 1] != '\n') {
+            complete--;
+        }
+        if (complete < bytes.length) {
+            try (FileChannel channel = FileChannel.open(keysFile, StandardOpenOption.WRITE)) {
+                channel.truncate(complete);
+                channel.force(true);
+            }
+        }
+        try (BufferedReader reader = new BufferedReader(new StringReader(new String(bytes, 0, complete, StandardCharsets.UTF_8)))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                keys.add(line);
+            }
+        }
+        return keys;
+    }
+
+    /** Maps the run's local ids onto store ids, appending keys the store has not seen yet. */
+    private int[] assignIds(List<String> keys) throws IOException {
+        Map<String, Integer> ids = new HashMap<>(keys.size() * 2);
+        for (int i = 0; i < keys.size(); i++) {
+            ids.putIfAbsent(keys.get(i), i);
+        }
+        int[] globalIds = new int[runKeys.size()];
+        int known = keys.size();
+        for (int i = 0; i < runKeys.size(); i++) {
+            Integer id = ids.get(runKeys.get(i));
+            if (id == null) {
+                id = keys.size();
+                keys.add(runKeys.get(i));
+            }
+            globalIds[i] = id;
+        }
+        if (keys.size() > known) {
+            StringBuilder appended = new StringBuilder();
+            for (String key : keys.subList(known, keys.size())) {
+                appended.append(key).append('\n');
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(appended.toString().getBytes(StandardCharsets.UTF_8));
+            try (FileChannel channel = FileChannel.open(dir.resolve(KEYS_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                // Runs refer to keys by line number, so the keys must be on disk before any run using them
+                channel.force(true);
+            }
+        }
+        return globalIds;
+    }
+
+    /** The stored run, newest first, that has the given run id, or null if there is none. */
+    private Path findRun(String id) throws IOException {
+        List<Path> runFiles = listRunFiles();
+        for (int i = runFiles.size() - 1; i >= 0; i--) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(runFiles.get(i)), 512))) {
+                if (in.readInt() == MAGIC && in.readInt() == FORMAT) {
+                    in.readLong();
+                    byte[] stored = new byte[in.readUnsignedShort()];
+                    in.readFully(stored);
+                    if (id.equals(new String(stored, StandardCharsets.UTF_8))) {
+                        return runFiles.get(i);
+                    }
+                }
+            } catch (EOFException e) {
+                // A damaged run file, skipped like readRun skips it
+            }
+        }
+        return null;
+    }
+
+    /** Adds a commit to a stored run; a scenario in both keeps the later commit's sample, as a retried shard would. */
+    private static Run merge(Run stored, Run commit) {
+        Map<Integer, Integer> positions = new HashMap<>(stored.ids.length * 2);
+        int[] ids = Arrays.copyOf(stored.ids, stored.ids.length + commit.ids.length);
+        int[] millis = Arrays.copyOf(stored.millis, ids.length);
+        byte[] failed = Arrays.copyOf(stored.failed, ids.length);
+        for (int i = 0; i < stored.ids.length; i++) {
+            positions.put(stored.ids[i], i);
+        }
+        int size = stored.ids.length;
+        for (int i = 0; i < commit.ids.length; i++) {
+            Integer position = positions.get(commit.ids[i]);
+            if (position == null) {
+                position = size++;
+                positions.put(commit.ids[i], position);
+            }
+            ids[position] = commit.ids[i];
+            millis[position] = commit.millis[i];
+            failed[position] = commit.failed[i];
+        }
+        return new Run(Math.min(stored.started, commit.started), stored.runId,
+                Arrays.copyOf(ids, size), Arrays.copyOf(millis, size), Arrays.copyOf(failed, size));
+    }
+
+    /** Writes the run over the given run file, or as the next run file if that is null. */
+    private void writeRun(Run run, Path replacing) throws IOException {
+        Path tmp = Files.createTempFile(dir, RUN_FILE_PREFIX, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), SingleFileHtmlReporter.WRITE_BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT);
+                out.writeLong(run.started);
+                byte[] runIdBytes = run.runId == null ? new byte[0] : run.runId.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(runIdBytes.length);
+                out.write(runIdBytes);
+                out.writeInt(run.ids.length);
+                for (int id : run.ids) {
+                    out.writeInt(id);
+                }
+                for (int millis : run.millis) {
+                    out.writeInt(millis);
+                }
+                out.write(run.failed);
+            }
+            if (replacing != null) {
+                // A merged run keeps its place in commit order
+                Files.move(tmp, replacing, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return;
+            }
+            // Run files are numbered in commit order and only rewritten to merge commits of one run id
+            List<Path> runFiles = listRunFiles();
+            long sequence = runFiles.isEmpty() ? 1 : runSequence(runFiles.get(runFiles.size() - 1)) + 1;
+            while (true) {
+                try {
+                    Files.move(tmp, dir.resolve(String.format("%s%010d%s", RUN_FILE_PREFIX, sequence, RUN_FILE_SUFFIX)), StandardCopyOption.ATOMIC_MOVE);
+                    return;
+                } catch (FileAlreadyExistsException e) {
+                    sequence++;
+                }
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private List<Path> listRunFiles() throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(RUN_FILE_PREFIX) && name.endsWith(RUN_FILE_SUFFIX) && runSequence(path) >= 0;
+                    })
+                    .sorted(Comparator.comparingLong(TrendStore::runSequence))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long runSequence(Path runFile) {
+        String name = runFile.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(RUN_FILE_PREFIX.length(), name.length() - RUN_FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Reads a run file, or returns null if it is damaged or refers to unknown scenarios. */
+    private static Run readRun(Path runFile, int keyCount) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(runFile));
+        try {
+            if (buffer.getInt() != MAGIC) {
+                return null;
+            }
+            int format = buffer.getInt();
+            if (format != FORMAT && format != FORMAT_WITHOUT_RUN_ID) {
+                return null;
+            }
+            long started = buffer.getLong();
+            String runId = null;
+            if (format == FORMAT) {
+                byte[] runIdBytes = new byte[buffer.getShort() & 0xffff];
+                buffer.get(runIdBytes);
+                runId = runIdBytes.length == 0 ? null : new String(runIdBytes, StandardCharsets.UTF_8);
+            }
+            int size = buffer.getInt();
+            if (size < 0 || size > buffer.remaining() / 9) {
+                return null;
+            }
+            int[] ids = new int[size];
+            int[] millis = new int[size];
+            byte[] failed = new byte[size];
+            buffer.asIntBuffer().get(ids);
+            buffer.position(buffer.position() + 4 * size);
+            buffer.asIntBuffer().get(millis);
+            buffer.position(buffer.position() + 4 * size);
+            buffer.get(failed);
+            for (int id : ids) {
+                if (id < 0 || id >= keyCount) {
+                    return null;
+                }
+            }
+            return new Run(started, runId, ids, millis, failed);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private static Trends analyze(List<Run> runs, List<String> keys) {
+        // Group the samples by scenario, in run order, with one counting pass and one filling pass
+        int keyCount = keys.size();
+        int[] offsets = new int[keyCount + 1];
+        for (Run run : runs) {
+            for (int id : run.ids) {
+                offsets[id + 1]++;
+            }
+        }
+        for (int i = 0; i < keyCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] millis = new int[offsets[keyCount]];
+        int[] positions = new int[millis.length];
+        byte[] failed = new byte[millis.length];
+        int[] next = Arrays.copyOf(offsets, keyCount);
+        for (int r = 0; r < runs.size(); r++) {
+            Run run = runs.get(r);
+            for (int j = 0; j < run.ids.length; j++) {
+                int k = next[run.ids[j]]++;
+                millis[k] = run.millis[j];
+                positions[k] = r;
+                failed[k] = run.failed[j];
+            }
+        }
+
+        List<Row> rows = new ArrayList<>();
+        for (int id = 0; id < keyCount; id++) {
+            int from = offsets[id];
+            int n = offsets[id + 1] - from;
+            if (n < 2) {
+                continue;
+            }
+            int flips = 0;
+            for (int k = from + 1; k < from + n; k++) {
+                if (failed[k] != failed[k - 1]) {
+                    flips++;
+                }
+            }
+            int[] sorted = Arrays.copyOfRange(millis, from, from + n);
+            Arrays.sort(sorted);
+            rows.add(new Row(keys.get(id), n, percentile(sorted, 0.50), percentile(sorted, 0.95), millis[from + n - 1],
+                    slope(positions, millis, from, n), (double) flips / (n - 1)));
+        }
+
+        List<Row> growing = top(rows, row -> row.samples >= 3 && row.growthMillisPerRun > 0,
+                Comparator.comparingDouble((Row row) -> row.growthMillisPerRun).reversed());
+        List<Row> flaky = top(rows, row -> row.flipRate > 0,
+                Comparator.comparingDouble((Row row) -> row.flipRate).reversed().thenComparing(Comparator.comparingInt((Row row) -> row.samples).reversed()));
+        List<Row> slowest = top(rows, row -> true,
+                Comparator.comparingInt((Row row) -> row.p95Millis).reversed());
+        return new Trends(runs.size(), growing, flaky, slowest);
+    }
+
+    private static List<Row> top(List<Row> rows, Predicate<Row> filter, Comparator<Row> order) {
+        List<Row> selected = rows.stream().filter(filter).sorted(order).limit(TOP_ROWS).collect(Collectors.toList());
+        return Collections.unmodifiableList(selected);
+    }
+
+    /** Nearest-rank percentile of sorted values. */
+    private static int percentile(int[] sorted, double p) {
+        return sorted[Math.max(0, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static double slope(int[] x, int[] y, int from, int n) {
+        double meanX = 0;
+        double meanY = 0;
+        for (int k = from; k < from + n; k++) {
+            meanX += x[k];
+            meanY += y[k];
+        }
+        meanX /= n;
+        meanY /= n;
+        double covariance = 0;
+        double variance = 0;
+        for (int k = from; k < from + n; k++) {
+            covariance += (x[k] - meanX) * (y[k] - meanY);
+            variance += (x[k] - meanX) * (x[k] - meanX);
+        }
+        return variance == 0 ? 0 : covariance / variance;
+    }
+}
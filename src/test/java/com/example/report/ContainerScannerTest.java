@@ -0,0 +1,92 @@
+package com.example.report;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ContainerScannerTest {
+
+    @TempDir
+    Path dir;
+
+    private static String extract(String html) {
+        return ContainerScanner.extractContainer(ByteBuffer.wrap(html.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void returnsTheContainerWithItsNestedDivs() {
+        String container = "<div class=\"container\"><div><div>a</div></div><div>b</div></div>";
+        assertEquals(container, extract("<html><body><div class=\"nav\">x</div>" + container + "<div>after</div></body></html>"));
+    }
+
+    @Test
+    void matchesContainerAsOneOfSeveralClasses() {
+        String container = "<DIV id='c' class='wide container dark'>text</DIV>";
+        assertEquals(container, extract("<body>" + container + "</body>"));
+    }
+
+    @Test
+    void ignoresClassesThatOnlyContainTheWord() {
+        assertNull(extract("<div class=\"container-fluid\">x</div><div data-x=\"container\">y</div>"));
+    }
+
+    @Test
+    void skipsComments() {
+        String container = "<div class=\"container\"><!-- </div> --><p>kept</p></div>";
+        assertEquals(container, extract("<!-- <div class=\"container\">fake</div> -->" + container));
+    }
+
+    @Test
+    void skipsMarkupInsideRawTextElements() {
+        String container = "<div class=\"container\"><script>var s = '</div>';</script>"
+                + "<textarea><div></textarea><style>div:after { content: '</div>'; }</style>end</div>";
+        assertEquals(container, extract("<head><title><div class=\"container\"></title>"
+                + "<script>document.write('<div class=\"container\">');</script></head>" + container));
+    }
+
+    @Test
+    void honoursQuotedGreaterThanInAttributes() {
+        String container = "<div title=\"a > b\" class=\"container\"><span data-x='</div>'>x</span></div>";
+        assertEquals(container, extract(container));
+    }
+
+    @Test
+    void decodesOnlyTheContainerAsUtf8() {
+        String container = "<div class=\"container\">café ✓ 😀</div>";
+        assertEquals(container, extract("<p>über</p>" + container));
+    }
+
+    @Test
+    void returnsNullWithoutAContainerOrItsEndTag() {
+        assertNull(extract("<html><body><div>no container</div></body></html>"));
+        assertNull(extract("<div class=\"container\"><div>unterminated</div>"));
+        assertNull(extract("<div class=\"container\"><!-- unterminated comment </div>"));
+        assertNull(extract("<div class=\"container\"><script>unterminated </div>"));
+    }
+
+    @Test
+    void readsSmallAndMappedFiles() throws IOException {
+        String container = "<div class=\"container\">small</div>";
+        Path small = dir.resolve("small.html");
+        Files.write(small, ("<html>" + container + "</html>").getBytes(StandardCharsets.UTF_8));
+        assertEquals(container, ContainerScanner.extractContainer(small));
+
+        // Large enough to be memory-mapped rather than read into the per-thread buffer
+        StringBuilder large = new StringBuilder("<div class=\"container\">");
+        while (large.length() < 4 * 1024 * 1024) {
+            large.append("<div class=\"step\">* match response == expected</div>");
+        }
+        large.append("</div>");
+        Path mapped = dir.resolve("large.html");
+        Files.write(mapped, ("<html><body>" + large + "</body></html>").getBytes(StandardCharsets.UTF_8));
+        assertEquals(large.toString(), ContainerScanner.extractContainer(mapped));
+    }
+}
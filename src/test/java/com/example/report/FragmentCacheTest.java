@@ -0,0 +1,111 @@
+package com.example.report;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FragmentCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private BasicFileAttributes report(String name, String content) throws IOException {
+        Path report = dir.resolve(name);
+        Files.write(report, content.getBytes(StandardCharsets.UTF_8));
+        return Files.readAttributes(report, BasicFileAttributes.class);
+    }
+
+    private long fragmentFiles(Path cacheDir) throws IOException {
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".fragment")).count();
+        }
+    }
+
+    @Test
+    void returnsFragmentsWhileTheReportIsUnchanged() throws IOException {
+        Path cacheDir = dir.resolve("cache");
+        FragmentCache cache = FragmentCache.open(cacheDir);
+        BasicFileAttributes attrs = report("a.html", "<div class=\"container\">a</div>");
+        assertNull(cache.get("a.html", attrs));
+
+        cache.put("a.html", attrs, new FragmentCache.Fragment("<div class=\"container\">a</div>", "alpha beta"));
+        FragmentCache.Fragment fragment = cache.get("a.html", attrs);
+        assertEquals("<div class=\"container\">a</div>", fragment.html);
+        assertEquals("alpha beta", fragment.terms);
+
+        // A rewritten report of another size must be parsed again
+        BasicFileAttributes changed = report("a.html", "<div class=\"container\">changed</div>");
+        assertNull(cache.get("a.html", changed));
+    }
+
+    @Test
+    void remembersReportsWithoutAContainer() throws IOException {
+        FragmentCache cache = FragmentCache.open(dir.resolve("cache"));
+        BasicFileAttributes attrs = report("empty.html", "<p>nothing</p>");
+        cache.put("empty.html", attrs, null);
+        assertSame(FragmentCache.Fragment.NONE, cache.get("empty.html", attrs));
+    }
+
+    @Test
+    void persistsTheIndexAndEvictsReportsThatAreGone() throws IOException {
+        Path cacheDir = dir.resolve("cache");
+        FragmentCache cache = FragmentCache.open(cacheDir);
+        BasicFileAttributes a = report("a.html", "a");
+        BasicFileAttributes b = report("b.html", "bb");
+        cache.put("a.html", a, new FragmentCache.Fragment("<div>a</div>", "a"));
+        cache.put("b.html", b, new FragmentCache.Fragment("<div>b</div>", "b"));
+        cache.save(new HashSet<>(Arrays.asList("a.html", "b.html")));
+        assertEquals(2, fragmentFiles(cacheDir));
+
+        FragmentCache reopened = FragmentCache.open(cacheDir);
+        assertEquals("<div>b</div>", reopened.get("b.html", b).html);
+
+        reopened.save(Collections.singleton("a.html"));
+        assertEquals(1, fragmentFiles(cacheDir));
+        FragmentCache afterEviction = FragmentCache.open(cacheDir);
+        assertEquals("<div>a</div>", afterEviction.get("a.html", a).html);
+        assertNull(afterEviction.get("b.html", b));
+    }
+
+    @Test
+    void startsEmptyFromAnIndexOfAnotherFormat() throws IOException {
+        Path cacheDir = dir.resolve("cache");
+        FragmentCache cache = FragmentCache.open(cacheDir);
+        BasicFileAttributes a = report("a.html", "a");
+        cache.put("a.html", a, new FragmentCache.Fragment("<div>a</div>", "a"));
+        cache.save(Collections.singleton("a.html"));
+
+        Path index = cacheDir.resolve("index.properties");
+        String properties = new String(Files.readAllBytes(index), StandardCharsets.UTF_8);
+        Files.write(index, properties.replace("@format=2", "@format=1").getBytes(StandardCharsets.UTF_8));
+        assertNull(FragmentCache.open(cacheDir).get("a.html", a));
+    }
+
+    @Test
+    void inMemoryCacheKeepsFragmentsWithoutTouchingTheDisk() throws IOException {
+        FragmentCache cache = FragmentCache.inMemory();
+        BasicFileAttributes a = report("a.html", "a");
+        FragmentCache.Fragment fragment = new FragmentCache.Fragment("<div>a</div>", "a");
+        cache.put("a.html", a, fragment);
+        assertSame(fragment, cache.get("a.html", a));
+
+        cache.save(Collections.emptySet());
+        assertNull(cache.get("a.html", a));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
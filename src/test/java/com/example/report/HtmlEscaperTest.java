@@ -0,0 +1,38 @@
+package com.example.report;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HtmlEscaperTest {
+
+    private static String escape(String text) throws IOException {
+        StringWriter out = new StringWriter();
+        HtmlEscaper.escape(text, out);
+        return out.toString();
+    }
+
+    @Test
+    void escapesEveryMarkupCharacter() throws IOException {
+        assertEquals("&lt;a href=&quot;x&quot; title=&#39;y&#39;&gt;Tom &amp; Jerry&lt;/a&gt;",
+                escape("<a href=\"x\" title='y'>Tom & Jerry</a>"));
+    }
+
+    @Test
+    void copiesUnescapedRunsAroundTheEntities() throws IOException {
+        assertEquals("plain text", escape("plain text"));
+        assertEquals("&amp;", escape("&"));
+        assertEquals("&lt;&lt;a&gt;&gt;", escape("<<a>>"));
+        assertEquals("a &lt; b", escape("a < b"));
+        assertEquals("café 😀 &gt; 0", escape("café 😀 > 0"));
+    }
+
+    @Test
+    void writesNothingForMissingText() throws IOException {
+        assertEquals("", escape(null));
+        assertEquals("", escape(""));
+    }
+}
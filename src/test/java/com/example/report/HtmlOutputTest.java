@@ -0,0 +1,106 @@
+package com.example.report;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HtmlOutputTest {
+
+    private static byte[] written(int bufferSize, String... parts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (HtmlOutput out = new HtmlOutput(bytes, bufferSize)) {
+            for (String part : parts) {
+                out.write(part);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void encodesLikeTheJdkEncoder() throws IOException {
+        String text = "ascii é ß € 中文 😀 𝄞 end";
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), written(8192, text));
+        // Small buffers flush in the middle of multi-byte sequences
+        for (int shift = 0; shift < 4; shift++) {
+            String shifted = "abc".substring(0, shift) + text + text;
+            assertArrayEquals(shifted.getBytes(StandardCharsets.UTF_8), written(HtmlOutput.MIN_BUFFER_SIZE, shifted));
+        }
+    }
+
+    @Test
+    void joinsSurrogatePairsSplitAcrossWrites() throws IOException {
+        String emoji = "😀";
+        assertArrayEquals(("a" + emoji + "b").getBytes(StandardCharsets.UTF_8),
+                written(HtmlOutput.MIN_BUFFER_SIZE, "a" + emoji.charAt(0), emoji.charAt(1) + "b"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (HtmlOutput out = new HtmlOutput(bytes, HtmlOutput.MIN_BUFFER_SIZE)) {
+            out.write(emoji.charAt(0));
+            out.write(emoji.charAt(1));
+        }
+        assertArrayEquals(emoji.getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+    }
+
+    @Test
+    void writesUnpairedSurrogatesAsQuestionMarks() throws IOException {
+        char high = "😀".charAt(0);
+        char low = "😀".charAt(1);
+        assertEquals("a?b", new String(written(HtmlOutput.MIN_BUFFER_SIZE, "a" + high + "b"), StandardCharsets.UTF_8));
+        assertEquals("a?b", new String(written(HtmlOutput.MIN_BUFFER_SIZE, "a" + low + "b"), StandardCharsets.UTF_8));
+        assertEquals("a??", new String(written(HtmlOutput.MIN_BUFFER_SIZE, "a" + high + high), StandardCharsets.UTF_8));
+        // A high surrogate left at close, or followed by encoded bytes, is still written
+        assertEquals("a?", new String(written(HtmlOutput.MIN_BUFFER_SIZE, "a" + high), StandardCharsets.UTF_8));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (HtmlOutput out = new HtmlOutput(bytes, HtmlOutput.MIN_BUFFER_SIZE)) {
+            out.write(high);
+            out.writeEncoded("<p>".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals("?<p>", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        // The JDK encoder agrees
+        assertArrayEquals(("a" + high + "b").getBytes(StandardCharsets.UTF_8), written(HtmlOutput.MIN_BUFFER_SIZE, "a" + high + "b"));
+    }
+
+    @Test
+    void writesNumbersAndValues() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (HtmlOutput out = new HtmlOutput(bytes, HtmlOutput.MIN_BUFFER_SIZE)) {
+            out.writeLong(0);
+            out.write(' ');
+            out.writeLong(-42);
+            out.write(' ');
+            out.writeLong(Long.MAX_VALUE);
+            out.write(' ');
+            out.writeLong(Long.MIN_VALUE);
+            out.write(' ');
+            out.writeValue(null);
+            out.writeValue("<b>");
+            out.writeEscapedValue("<b>");
+            out.writeEscapedValue(7);
+        }
+        assertEquals("0 -42 9223372036854775807 -9223372036854775808 <b>&lt;b&gt;7",
+                new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writesEncodedChunksLargerThanTheBuffer() throws IOException {
+        byte[] chunk = "0123456789abcdefghijklmn".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (HtmlOutput out = new HtmlOutput(bytes, HtmlOutput.MIN_BUFFER_SIZE)) {
+            out.write("ab");
+            out.writeEncoded(chunk);
+            out.write("cd");
+        }
+        assertEquals("ab0123456789abcdefghijklmncd", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void rejectsBuffersTooSmallForANumber() {
+        assertThrows(IllegalArgumentException.class, () -> new HtmlOutput(new ByteArrayOutputStream(), HtmlOutput.MIN_BUFFER_SIZE - 1));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.report;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HtmlTemplateTest {
+
+    private static String render(HtmlTemplate template, Object... values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (HtmlOutput out = new HtmlOutput(bytes, 64)) {
+            template.render(out, values);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String renderConstant(HtmlTemplate template) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (HtmlOutput out = new HtmlOutput(bytes, 64)) {
+            template.render(out);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void escapesValuesUnlessMarkedRaw() throws IOException {
+        HtmlTemplate template = HtmlTemplate.compile("<p title=\"{{title}}\">{{&body}}</p>");
+        assertEquals("<p title=\"&quot;a&quot; &amp; &#39;b&#39;\"><b>bold</b></p>",
+                render(template, "\"a\" & 'b'", "<b>bold</b>"));
+    }
+
+    @Test
+    void takesOneValuePerDistinctName() throws IOException {
+        HtmlTemplate template = HtmlTemplate.compile("<a id=\"{{id}}\" href=\"#{{id}}\">{{name}} {{id}}</a>");
+        assertEquals("<a id=\"7\" href=\"#7\">seven 7</a>", render(template, 7, "seven"));
+    }
+
+    @Test
+    void writesNumbersAsDigitsAndNullsAsNothing() throws IOException {
+        HtmlTemplate template = HtmlTemplate.compile("[{{a}}|{{b}}|{{&c}}]");
+        assertEquals("[-12|3000000000|]", render(template, -12, 3000000000L, null));
+    }
+
+    @Test
+    void keepsNonAsciiChunksIntact() throws IOException {
+        HtmlTemplate template = HtmlTemplate.compile("<span>µs — {{v}} ✓</span>");
+        assertEquals("<span>µs — é ✓</span>", render(template, "é"));
+    }
+
+    @Test
+    void rejectsTheWrongNumberOfValues() throws IOException {
+        HtmlTemplate template = HtmlTemplate.compile("<p>{{a}}{{b}}{{a}}</p>");
+        assertThrows(IllegalArgumentException.class, () -> render(template, "only one"));
+        assertThrows(IllegalArgumentException.class, () -> render(template, "a", "b", "a"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertThrows(IllegalArgumentException.class, () -> template.render(new HtmlOutput(bytes, 64)));
+
+        HtmlTemplate constant = HtmlTemplate.compile("<hr>");
+        assertThrows(IllegalArgumentException.class, () -> render(constant, "extra"));
+        assertEquals("<hr>", renderConstant(constant));
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.report;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KarateReportConsolidatorTest {
+
+    @TempDir
+    Path reportsRoot;
+
+    static void writeFeatureReport(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, ("<html><head><style>.x{}</style></head><body><div class=\"nav\">nav</div>"
+                + "<div class=\"container\"><h2>" + content + "</h2></div></body></html>").getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void writeSummary(Path reportsRoot) throws IOException {
+        Files.write(reportsRoot.resolve(KarateReportConsolidator.SUMMARY_FILE_NAME),
+                ("<html><head><style>body{}</style></head><body><div class=\"container\">summary</div></body></html>")
+                        .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BasicFileAttributes attrs(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+
+    @Test
+    void keepsTheWalkOrderWhateverTheParallelism() throws IOException {
+        Path sequential = reportsRoot.resolve("sequential");
+        Path parallel = reportsRoot.resolve("parallel");
+        for (Path root : new Path[] {sequential, parallel}) {
+            for (int i = 0; i < 20; i++) {
+                writeFeatureReport(root.resolve("shard-" + i % 3 + "/feature" + i + ".html"), "Feature " + i);
+            }
+            writeSummary(root);
+        }
+
+        KarateReportConsolidator.consolidateReports(sequential.toString(),
+                new KarateReportConsolidator.Options().parallelism(1).maxPendingReports(1));
+        KarateReportConsolidator.consolidateReports(parallel.toString(),
+                new KarateReportConsolidator.Options().parallelism(4).maxPendingReports(3));
+        String report = new String(Files.readAllBytes(parallel.resolve(KarateReportConsolidator.OUTPUT_FILE_NAME)),
+                StandardCharsets.UTF_8);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(report.contains("<h2>Feature " + i + "</h2>"), report);
+        }
+        assertEquals(new String(Files.readAllBytes(sequential.resolve(KarateReportConsolidator.OUTPUT_FILE_NAME)),
+                StandardCharsets.UTF_8), report);
+    }
+
+    @Test
+    void rejectsAnEmptyWorkerPool() {
+        assertThrows(IllegalArgumentException.class, () -> new KarateReportConsolidator.Options().parallelism(0));
+        assertThrows(IllegalArgumentException.class, () -> new KarateReportConsolidator.Options().maxPendingReports(0));
+    }
+
+    @Test
+    void embedsCompressedPanesInTheReport() throws IOException {
+        writeFeatureReport(reportsRoot.resolve("login.html"), "Login");
+        writeSummary(reportsRoot);
+
+        KarateReportConsolidator.consolidateReports(reportsRoot.toString(),
+                new KarateReportConsolidator.Options().paneMode(KarateReportConsolidator.PaneMode.EMBEDDED));
+        String report = new String(Files.readAllBytes(reportsRoot.resolve(KarateReportConsolidator.OUTPUT_FILE_NAME)),
+                StandardCharsets.UTF_8);
+        assertFalse(report.contains("<h2>Login</h2>"), report);
+        Matcher payload = Pattern.compile("class=\"pane-payload\">([^<]*)</script>").matcher(report);
+        assertTrue(payload.find(), report);
+        assertTrue(inflate(payload.group(1)).contains("<h2>Login</h2>"));
+    }
+
+    @Test
+    void writesSidecarPanesNextToTheReport() throws IOException {
+        writeFeatureReport(reportsRoot.resolve("login.html"), "Login");
+        writeSummary(reportsRoot);
+
+        KarateReportConsolidator.consolidateReports(reportsRoot.toString(),
+                new KarateReportConsolidator.Options().paneMode(KarateReportConsolidator.PaneMode.SIDECAR));
+        String report = new String(Files.readAllBytes(reportsRoot.resolve(KarateReportConsolidator.OUTPUT_FILE_NAME)),
+                StandardCharsets.UTF_8);
+        assertFalse(report.contains("<h2>Login</h2>"), report);
+        String script = new String(Files.readAllBytes(reportsRoot.resolve(KarateReportConsolidator.PANES_DIR_NAME)
+                .resolve("0.js")), StandardCharsets.US_ASCII);
+        Matcher payload = Pattern.compile("karatePaneLoaded\\(0, '([^']*)'\\);\n").matcher(script);
+        assertTrue(payload.matches(), script);
+        assertTrue(inflate(payload.group(1)).contains("<h2>Login</h2>"));
+    }
+
+    @Test
+    void extractsFragmentsWithoutWritingAReport() throws IOException {
+        Path login = reportsRoot.resolve("login.html");
+        Path search = reportsRoot.resolve("shard-2/search.html");
+        writeFeatureReport(login, "Login");
+        writeFeatureReport(search, "Search");
+        FragmentCache cache = FragmentCache.inMemory();
+
+        KarateReportConsolidator.extractFragments(reportsRoot, cache, new KarateReportConsolidator.Options());
+        assertEquals("<div class=\"container\"><h2>Login</h2></div>", cache.get("login.html", attrs(login)).html);
+        assertEquals("search", cache.get("shard-2/search.html", attrs(search)).terms);
+        assertFalse(Files.exists(reportsRoot.resolve(KarateReportConsolidator.OUTPUT_FILE_NAME)));
+
+        // Reports that are gone are evicted, and changed ones parsed again
+        BasicFileAttributes removed = attrs(search);
+        Files.delete(search);
+        writeFeatureReport(login, "Login again");
+        KarateReportConsolidator.extractFragments(reportsRoot, cache, new KarateReportConsolidator.Options());
+        assertNull(cache.get("shard-2/search.html", removed));
+        assertEquals("login again", cache.get("login.html", attrs(login)).terms);
+    }
+
+    @Test
+    void consolidatesFromExtractedFragments() throws IOException {
+        writeFeatureReport(reportsRoot.resolve("login.html"), "Login");
+        FragmentCache cache = FragmentCache.inMemory();
+        KarateReportConsolidator.extractFragments(reportsRoot, cache, new KarateReportConsolidator.Options());
+        writeSummary(reportsRoot);
+
+        KarateReportConsolidator.consolidate(reportsRoot, cache, new KarateReportConsolidator.Options());
+        String report = new String(Files.readAllBytes(reportsRoot.resolve(KarateReportConsolidator.OUTPUT_FILE_NAME)),
+                StandardCharsets.UTF_8);
+        assertTrue(report.contains("<h2>Login</h2>"), report);
+        assertTrue(report.contains("summary"), report);
+    }
+
+    @Test
+    void prunesEverythingButTheCurrentOutput() throws IOException {
+        Path pages = reportsRoot.resolve(KarateReportConsolidator.PAGES_DIR_NAME);
+        writeFeatureReport(pages.resolve("old/nested/1.html"), "Old");
+        Files.write(pages.resolve("0.html"), new byte[] {1});
+        Files.write(pages.resolve("2.html"), new byte[] {2});
+
+        KarateReportConsolidator.pruneOutputDir(pages, Collections.singleton("0.html"));
+        try (Stream<Path> files = Files.list(pages)) {
+            assertEquals(Collections.singletonList(pages.resolve("0.html")), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void prunesPagesOfALargerRunOnceTheNewIndexIsWritten() throws IOException {
+        writeFeatureReport(reportsRoot.resolve("login.html"), "Login");
+        writeFeatureReport(reportsRoot.resolve("search.html"), "Search");
+        writeSummary(reportsRoot);
+        KarateReportConsolidator.Options sharded = new KarateReportConsolidator.Options().layout(OutputLayout.SHARDED);
+        KarateReportConsolidator.consolidateReports(reportsRoot.toString(), sharded);
+        Path pages = reportsRoot.resolve(KarateReportConsolidator.PAGES_DIR_NAME);
+        assertTrue(Files.exists(pages.resolve("1.html")));
+
+        Files.delete(reportsRoot.resolve("search.html"));
+        KarateReportConsolidator.consolidateReports(reportsRoot.toString(), sharded);
+        try (Stream<Path> files = Files.list(pages)) {
+            assertEquals(Collections.singletonList(pages.resolve("0.html")), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void removesTheOutputOfEarlierLayoutsAndPaneModes() throws IOException {
+        writeFeatureReport(reportsRoot.resolve("login.html"), "Login");
+        writeSummary(reportsRoot);
+        Path pages = reportsRoot.resolve(KarateReportConsolidator.PAGES_DIR_NAME);
+        Path assets = reportsRoot.resolve(KarateReportConsolidator.ASSETS_DIR_NAME);
+        Path panes = reportsRoot.resolve(KarateReportConsolidator.PANES_DIR_NAME);
+        Path gzip = reportsRoot.resolve(KarateReportConsolidator.OUTPUT_FILE_NAME + KarateReportConsolidator.GZIP_SUFFIX);
+
+        KarateReportConsolidator.consolidateReports(reportsRoot.toString(), new KarateReportConsolidator.Options()
+                .layout(OutputLayout.SHARDED).gzipOutput(true));
+        assertTrue(Files.isDirectory(pages));
+        assertTrue(Files.isDirectory(assets));
+        assertTrue(Files.exists(gzip));
+
+        KarateReportConsolidator.consolidateReports(reportsRoot.toString(), new KarateReportConsolidator.Options()
+                .layout(OutputLayout.SINGLE_FILE).paneMode(KarateReportConsolidator.PaneMode.SIDECAR));
+        assertFalse(Files.exists(pages));
+        assertFalse(Files.exists(assets));
+        assertFalse(Files.exists(gzip));
+        assertTrue(Files.isDirectory(panes));
+
+        KarateReportConsolidator.consolidateReports(reportsRoot.toString(), new KarateReportConsolidator.Options()
+                .layout(OutputLayout.SINGLE_FILE));
+        assertFalse(Files.exists(panes));
+        String report = new String(Files.readAllBytes(reportsRoot.resolve(KarateReportConsolidator.OUTPUT_FILE_NAME)),
+                StandardCharsets.UTF_8);
+        assertTrue(report.contains("<h2>Login</h2>"), report);
+    }
+
+    @Test
+    void leavesNoTemporaryFilesWhenWritingFails() throws IOException {
+        writeFeatureReport(reportsRoot.resolve("login.html"), "Login");
+        writeSummary(reportsRoot);
+        Path output = reportsRoot.resolve(KarateReportConsolidator.OUTPUT_FILE_NAME);
+        Path gzip = reportsRoot.resolve(KarateReportConsolidator.OUTPUT_FILE_NAME + KarateReportConsolidator.GZIP_SUFFIX);
+        // A directory where the compressed copy goes fails the write once the report itself is open
+        Files.createDirectories(gzip.resolveSibling(gzip.getFileName() + ".tmp"));
+
+        assertThrows(IOException.class, () -> KarateReportConsolidator.consolidateReports(reportsRoot.toString(),
+                new KarateReportConsolidator.Options().gzipOutput(true)));
+        assertFalse(Files.exists(output));
+        try (Stream<Path> files = Files.list(reportsRoot)) {
+            assertFalse(files.anyMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    private static String inflate(String payload) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(payload)))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
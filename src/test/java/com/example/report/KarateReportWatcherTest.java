@@ -0,0 +1,55 @@
+package com.example.report;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KarateReportWatcherTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    Path reportsRoot;
+
+    /** Waits for the consolidated report to exist and contain the text, returning whether it did in time. */
+    private boolean awaitReport(String text) throws IOException, InterruptedException {
+        Path output = reportsRoot.resolve(KarateReportConsolidator.OUTPUT_FILE_NAME);
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (Files.exists(output) && new String(Files.readAllBytes(output), StandardCharsets.UTF_8).contains(text)) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+
+    @Test
+    void emitsTheReportOnceTheSummaryArrivesAndKeepsItCurrent() throws Exception {
+        KarateReportConsolidator.Options options = new KarateReportConsolidator.Options().debounceMillis(50);
+        KarateReportWatcher watcher = KarateReportWatcher.start(reportsRoot.toString(), options);
+        try {
+            KarateReportConsolidatorTest.writeFeatureReport(reportsRoot.resolve("shard-1/login.html"), "Login");
+            KarateReportConsolidatorTest.writeFeatureReport(reportsRoot.resolve("search.html"), "Search");
+            Thread.sleep(500);
+            // Reports alone are extracted but not emitted
+            assertFalse(Files.exists(reportsRoot.resolve(KarateReportConsolidator.OUTPUT_FILE_NAME)));
+
+            KarateReportConsolidatorTest.writeSummary(reportsRoot);
+            assertTrue(awaitReport("<h2>Login</h2>"));
+            assertTrue(awaitReport("<h2>Search</h2>"));
+
+            KarateReportConsolidatorTest.writeFeatureReport(reportsRoot.resolve("shard-1/checkout.html"), "Checkout");
+            assertTrue(awaitReport("<h2>Checkout</h2>"));
+        } finally {
+            watcher.close();
+        }
+    }
+}
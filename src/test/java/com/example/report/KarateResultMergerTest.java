@@ -0,0 +1,88 @@
+package com.example.report;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KarateResultMergerTest {
+
+    @TempDir
+    Path dir;
+
+    private String merge(Path... shards) throws IOException {
+        Path output = dir.resolve("merged/karate-report.html");
+        KarateResultMerger.mergeShards(Arrays.asList(shards), output, 2, new SingleFileHtmlReporter.Options());
+        return new String(Files.readAllBytes(output), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void mergesEveryShardIntoOneSummary() throws IOException {
+        SyntheticResults.create(dir.resolve("shard-1"), 2, 10, 100);
+        SyntheticResults.create(dir.resolve("shard-2"), 3, 10, 100);
+
+        String report = merge(dir.resolve("shard-1"), dir.resolve("shard-2"));
+        assertTrue(report.contains("<span id=\"summary-features\">5</span>"), report);
+        assertTrue(report.contains("<span id=\"summary-scenarios\">50</span>"), report);
+        assertTrue(report.contains("<span id=\"summary-failed\">5</span>"), report);
+        assertTrue(report.contains("(longest of 2 shards)"), report);
+        assertTrue(report.contains("Summed Duration:"), report);
+    }
+
+    /** Writes a feature report marked up the way Karate 1.x renders one. */
+    private static void writeKarateFeatureReport(Path file, String feature, String... scenarios) throws IOException {
+        StringBuilder html = new StringBuilder("<html><body><div id=\"content\"><div class=\"page-heading\">"
+                + "<span class=\"feature-path\">" + feature + ".feature</span>"
+                + "<span class=\"feature-name\">" + feature + "</span></div>");
+        for (String scenario : scenarios) {
+            boolean failed = scenario.startsWith("!");
+            html.append("<div class=\"scenario\"><div class=\"scenario-heading\"><div class=\"scenario-keyword\">")
+                    .append("Scenario: <span class=\"scenario-name\">").append(failed ? scenario.substring(1) : scenario)
+                    .append("</span></div><div class=\"scenario-time ").append(failed ? "failed" : "passed")
+                    .append("\"><span>ms:</span>&nbsp;<span>1500</span></div></div>")
+                    .append("<div class=\"step-row\"><div class=\"step-cell\">* def token = 'abc'</div></div></div>");
+        }
+        html.append("</div></body></html>");
+        Files.createDirectories(file.getParent());
+        Files.write(file, html.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void mergesShardsWithoutJsonResultsFromTheirFeatureReports() throws IOException {
+        SyntheticResults.create(dir.resolve("shard-1"), 1, 10, 100);
+        Path htmlOnly = dir.resolve("shard-2");
+        writeKarateFeatureReport(htmlOnly.resolve("login.html"), "Login", "Valid password", "!Expired password");
+        KarateReportConsolidatorTest.writeSummary(htmlOnly);
+        writeKarateFeatureReport(htmlOnly.resolve("karate-tags.html"), "Tags");
+
+        String report = merge(dir.resolve("shard-1"), htmlOnly);
+        assertTrue(report.contains("<span id=\"summary-features\">2</span>"), report);
+        assertTrue(report.contains("<span id=\"summary-scenarios\">12</span>"), report);
+        assertTrue(report.contains("<span id=\"summary-failed\">2</span>"), report);
+        assertTrue(report.contains("<h3>Expired password</h3>"), report);
+        assertTrue(report.contains("* def token = 'abc'"), report);
+        // Scraped scenarios are search documents like the rest, found by their step text
+        assertTrue(report.matches("(?s).*\"terms\":\"[^\"]*\\btoken\\b.*"), report);
+    }
+
+    @Test
+    void failsNamingShardsWithoutResults() throws IOException {
+        SyntheticResults.create(dir.resolve("shard-1"), 1, 2, 100);
+        Path empty = dir.resolve("shard-2");
+        KarateReportConsolidatorTest.writeSummary(Files.createDirectories(empty));
+        Path missing = dir.resolve("shard-3");
+
+        IOException e = assertThrows(IOException.class, () -> merge(dir.resolve("shard-1"), empty, missing));
+        assertTrue(e.getMessage().contains(empty.toString()), e.getMessage());
+        assertTrue(e.getMessage().contains(missing.toString()), e.getMessage());
+        assertFalse(Files.exists(dir.resolve("merged/karate-report.html")));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.report;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    private static final long US = 1_000;
+    private static final long MS = 1_000_000;
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentileNanos(0.99));
+        assertEquals(0, histogram.maxNanos());
+    }
+
+    @Test
+    void percentilesAreWithinABucketOfTheExactValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            // Spread over five orders of magnitude, from microseconds to seconds
+            values[i] = (long) Math.pow(10, 3 + random.nextDouble() * 6);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] {0.01, 0.50, 0.90, 0.95, 0.99, 1.0}) {
+            long exact = values[Math.max(0, (int) Math.ceil(percentile * values.length) - 1)];
+            long estimate = histogram.percentileNanos(percentile);
+            // The upper bound of the bucket holding the value, a microsecond bucket at worst
+            assertTrue(estimate >= exact / US * US, percentile + ": " + estimate + " below " + exact);
+            assertTrue(estimate <= exact * 1.125 + US, percentile + ": " + estimate + " too far above " + exact);
+        }
+        assertEquals(values[values.length - 1], histogram.maxNanos());
+        assertEquals(histogram.maxNanos(), histogram.percentileNanos(1.0));
+    }
+
+    @Test
+    void keepsExactCountsTotalsAndMaxima() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3 * MS);
+        histogram.record(1 * MS);
+        histogram.record(-5);
+        assertEquals(3, histogram.count());
+        assertEquals(4 * MS, histogram.totalNanos());
+        assertEquals(3 * MS, histogram.maxNanos());
+        // The upper bound of the first exact bucket
+        assertEquals(1 * US, histogram.percentileNanos(0.2));
+    }
+
+    @Test
+    void exactBucketsReportTheirUpperBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(2_500);
+        histogram.record(7 * MS);
+        // 2.5 microseconds lands in the bucket of 2 up to 3 microseconds
+        assertEquals(3 * US, histogram.percentileNanos(0.5));
+        assertEquals(7 * MS, histogram.percentileNanos(1.0));
+    }
+
+    @Test
+    void addMergesAnotherHistogram() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        LatencyHistogram both = new LatencyHistogram();
+        for (long v = 1; v <= 200; v++) {
+            (v % 2 == 0 ? a : b).record(v * 37 * US);
+            both.record(v * 37 * US);
+        }
+        a.add(b);
+        assertEquals(both.count(), a.count());
+        assertEquals(both.totalNanos(), a.totalNanos());
+        assertEquals(both.maxNanos(), a.maxNanos());
+        for (double percentile : new double[] {0.5, 0.95, 0.99}) {
+            assertEquals(both.percentileNanos(percentile), a.percentileNanos(percentile));
+        }
+    }
+
+    @Test
+    void foldsCountsIntoPowersOfTwo() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(1 * US);
+        histogram.record(3 * US);
+        histogram.record(1000 * US);
+        histogram.record(1023 * US);
+        long[] counts = histogram.powerOfTwoCounts();
+        assertEquals(1, counts[0]);
+        assertEquals(1, counts[1]);
+        assertEquals(1, counts[2]);
+        // 512 to 1023 microseconds
+        assertEquals(2, counts[10]);
+        assertEquals(5, Arrays.stream(counts).sum());
+    }
+}
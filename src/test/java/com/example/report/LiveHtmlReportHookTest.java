@@ -0,0 +1,56 @@
+package com.example.report;
+
+import com.intuit.karate.Runner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LiveHtmlReportHookTest {
+
+    @TempDir
+    Path dir;
+
+    private Path feature(String name, String scenario) throws IOException {
+        Path file = dir.resolve(name + ".feature");
+        Files.write(file, ("Feature: " + name + "\n\n"
+                + "Scenario: " + scenario + "\n"
+                + "* print 'shared payload'\n"
+                + "* match 1 == 1\n").getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private String run(LiveHtmlReportHook hook, Path feature) throws IOException {
+        Runner.path(feature.toString())
+                .hook(hook)
+                .reportDir(dir.resolve("karate-reports").toString())
+                .outputHtmlReport(false)
+                .outputCucumberJson(false)
+                .outputJunitXml(false)
+                .parallel(1);
+        return new String(Files.readAllBytes(dir.resolve("report.html")), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void writesAFreshReportForEverySuite() throws IOException {
+        LiveHtmlReportHook hook = new LiveHtmlReportHook(dir.resolve("report.html"), new SingleFileHtmlReporter.Options());
+        String first = run(hook, feature("login", "Login works"));
+        assertTrue(first.contains("updateSummary(1, 1, 1, 0, "), first);
+        assertTrue(first.contains("<template id=\"" + PayloadStore.ELEMENT_ID_PREFIX), first);
+
+        String second = run(hook, feature("search", "Search works"));
+        assertTrue(second.contains("Search works"), second);
+        assertFalse(second.contains("Login works"), second);
+        // Counters start over, and the payload both runs print is stored in this report too
+        assertTrue(second.contains("updateSummary(1, 1, 1, 0, "), second);
+        assertFalse(second.contains("updateSummary(2, "), second);
+        assertTrue(second.contains("<template id=\"" + PayloadStore.ELEMENT_ID_PREFIX), second);
+        assertTrue(second.contains("shared payload"), second);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.report;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PayloadStoreTest {
+
+    private static String write(PayloadStore store, String... payloads) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HtmlOutput html = SingleFileHtmlReporter.openWriter(out)) {
+            for (String payload : payloads) {
+                store.write(payload, html, "  ");
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static int count(String text, String part) {
+        return text.split(Pattern.quote(part), -1).length - 1;
+    }
+
+    @Test
+    void writesEachDistinctPayloadOnce() throws IOException {
+        String html = write(new PayloadStore(false, 0), "{ \"id\": 1 }", "<b>other</b>", "{ \"id\": 1 }");
+
+        assertEquals(2, count(html, "<template id=\"" + PayloadStore.ELEMENT_ID_PREFIX));
+        assertEquals(3, count(html, "<pre data-payload=\""));
+        assertTrue(html.contains("&lt;b&gt;other&lt;/b&gt;</template>"), html);
+
+        // The repeated payload's placeholder refers to the template written for its first occurrence
+        Matcher placeholders = Pattern.compile("<pre data-payload=\"([0-9a-f]{32})\">").matcher(html);
+        assertTrue(placeholders.find());
+        String first = placeholders.group(1);
+        assertTrue(placeholders.find());
+        assertTrue(placeholders.find());
+        assertEquals(first, placeholders.group(1));
+        assertTrue(html.startsWith("  <template id=\"" + PayloadStore.ELEMENT_ID_PREFIX + first + "\">"), html);
+    }
+
+    @Test
+    void truncatesPayloadsOverTheCap() throws IOException {
+        String html = write(new PayloadStore(false, 4), "abcdefghij");
+        assertTrue(html.contains(">abcd\n... [truncated 6 of 10 characters]</template>"), html);
+    }
+
+    @Test
+    void compressesPayloadsIntoScriptBlocks() throws IOException {
+        String html = write(new PayloadStore(true, 0), "<payload>", "<payload>");
+
+        Matcher block = Pattern.compile("<script type=\"application/gzip;base64\" id=\""
+                + PayloadStore.ELEMENT_ID_PREFIX + "[0-9a-f]{32}\">([^<]*)</script>").matcher(html);
+        assertTrue(block.find(), html);
+        assertEquals("<payload>", inflate(block.group(1)));
+        assertFalse(block.find(), html);
+        assertEquals(2, count(html, "<pre data-payload=\""));
+    }
+
+    private static String inflate(String payload) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(payload)))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.report;
+
+import com.intuit.karate.Results;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guards the streaming report path: renders a run whose step logs add up to more than the heap
+ * of a child JVM started with a capped {@code -Xmx}, so any change that holds every feature,
+ * scenario or payload in memory at once fails with an OutOfMemoryError.
+ */
+class ReportHeapTest {
+
+    private static final String MAX_HEAP = "-Xmx64m";
+    private static final int FEATURES = 16;
+    private static final int SCENARIOS_PER_FEATURE = 4;
+    /** 64 scenarios of 2 MB each, twice the child's heap. */
+    private static final int LOG_CHARS = 2 * 1024 * 1024;
+
+    @TempDir
+    Path workDir;
+
+    @ParameterizedTest
+    @EnumSource(value = OutputLayout.class, names = {"SINGLE_FILE", "SHARDED"})
+    void rendersRunLargerThanTheHeap(OutputLayout layout) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add(MAX_HEAP);
+        command.add("-XX:+ExitOnOutOfMemoryError");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ReportHeapTest.class.getName());
+        command.add(workDir.toString());
+        command.add(layout.name());
+        Process process = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(workDir.resolve("child.log").toFile())
+                .start();
+        assertTrue(process.waitFor(5, TimeUnit.MINUTES), "the report did not finish in time");
+        String log = new String(Files.readAllBytes(workDir.resolve("child.log")));
+        assertEquals(0, process.exitValue(), log);
+
+        // Every step log made it into the report
+        Path reportDir = workDir.resolve(SingleFileHtmlReporter.REPORT_DIR);
+        long reportBytes;
+        try (Stream<Path> files = Files.walk(reportDir)) {
+            reportBytes = files.filter(Files::isRegularFile).mapToLong(ReportHeapTest::size).sum();
+        }
+        assertTrue(reportBytes > (long) FEATURES * SCENARIOS_PER_FEATURE * LOG_CHARS,
+                "report holds only " + reportBytes + " bytes");
+    }
+
+    /** Runs in the child JVM: builds the synthetic run and renders it with the given layout. */
+    public static void main(String[] args) throws IOException {
+        Path workDir = Paths.get(args[0]);
+        Results results = SyntheticResults.create(workDir, FEATURES, SCENARIOS_PER_FEATURE, LOG_CHARS);
+        SingleFileHtmlReporter.Options options = new SingleFileHtmlReporter.Options()
+                .layout(OutputLayout.valueOf(args[1]));
+        SingleFileHtmlReporter.generateReport(results, options);
+        if (!new File(SingleFileHtmlReporter.REPORT_DIR, SingleFileHtmlReporter.REPORT_FILE_NAME).isFile()) {
+            System.exit(2);
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.report;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportMetricsTest {
+
+    @TempDir
+    Path reportsRoot;
+
+    private Path consolidate(ReportMetrics metrics) throws IOException {
+        KarateReportConsolidatorTest.writeFeatureReport(reportsRoot.resolve("login.html"), "Login");
+        KarateReportConsolidatorTest.writeFeatureReport(reportsRoot.resolve("shard-2/search.html"), "Search");
+        KarateReportConsolidatorTest.writeSummary(reportsRoot);
+        KarateReportConsolidator.consolidateReports(reportsRoot.toString(),
+                new KarateReportConsolidator.Options().fragmentCache(false).metrics(metrics));
+        return reportsRoot.resolve(KarateReportConsolidator.OUTPUT_FILE_NAME);
+    }
+
+    @Test
+    void countsTheFilesReadAndTheBytesWritten() throws IOException {
+        ReportMetrics metrics = new ReportMetrics();
+        Path report = consolidate(metrics);
+
+        // Both feature reports and the summary
+        assertEquals(3, metrics.filesRead());
+        assertEquals(Files.size(report), metrics.bytesWritten());
+        assertEquals(1, metrics.filesWritten());
+        assertTrue(metrics.peakBufferBytes() > 0);
+        assertTrue(metrics.phaseNanos(ReportMetrics.Phase.PARSE) > 0);
+    }
+
+    @Test
+    void exportsNextToTheReport() throws IOException {
+        Path report = consolidate(new ReportMetrics().exportAs(ReportMetrics.Format.PROMETHEUS));
+
+        Path exported = report.resolveSibling(report.getFileName() + ".metrics.prom");
+        String text = new String(Files.readAllBytes(exported), StandardCharsets.UTF_8);
+        assertTrue(text.contains("karate_report_phase_seconds{phase=\"parse\"} "), text);
+        assertTrue(text.contains("\nkarate_report_files_read 3\n"), text);
+    }
+
+    @Test
+    void writesTheMetricsAsJson() throws IOException {
+        StringBuilder json = new StringBuilder();
+        new ReportMetrics().writeJson(json);
+        assertEquals("{\"phases\":{\"walk\":0,\"parse\":0,\"extract\":0,\"render\":0,\"serialize\":0,\"write\":0},"
+                + "\"bytesRead\":0,\"bytesWritten\":0,\"filesRead\":0,\"filesWritten\":0,\"peakBufferBytes\":0}\n",
+                json.toString());
+    }
+
+    @Test
+    void disabledMetricsExportNothing() throws IOException {
+        Path report = consolidate(ReportMetrics.DISABLED);
+        assertTrue(Files.exists(report));
+        assertFalse(Files.exists(report.resolveSibling(report.getFileName() + ".metrics.json")));
+        assertEquals(0, ReportMetrics.DISABLED.filesRead());
+    }
+}
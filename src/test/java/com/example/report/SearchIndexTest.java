@@ -0,0 +1,102 @@
+package com.example.report;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchIndexTest {
+
+    private static String json(SearchIndex index) throws IOException {
+        StringBuilder out = new StringBuilder();
+        index.writeJson(out);
+        return out.toString();
+    }
+
+    @Test
+    void writesSortedTermsWithDeltaEncodedPostings() throws IOException {
+        SearchIndex index = new SearchIndex();
+        int first = index.newDocument();
+        index.add(first, "Login works");
+        int second = index.newDocument();
+        index.add(second, "Logout");
+        int third = index.newDocument();
+        index.add(third, "login again, LOGIN!");
+
+        assertEquals(3, index.documentCount());
+        // Each document is listed once per term, as the gap from the previous one
+        assertEquals("{\"docs\":3,\"terms\":\"again login logout works\","
+                + "\"postings\":[[2],[0,2],[1],[0]]}", json(index));
+    }
+
+    @Test
+    void skipsSingleCharactersAndNulls() throws IOException {
+        SearchIndex index = new SearchIndex();
+        int doc = index.newDocument();
+        index.add(doc, "a b cd * 7 42");
+        index.add(doc, null);
+        assertEquals("{\"docs\":1,\"terms\":\"42 cd\",\"postings\":[[0],[0]]}", json(index));
+    }
+
+    @Test
+    void splitsOnAnythingButLettersAndDigits() throws IOException {
+        SearchIndex index = new SearchIndex();
+        index.add(index.newDocument(), "GET /api/v1/users?id=17 — Größe");
+        assertEquals("{\"docs\":1,\"terms\":\"17 api get größe id users v1\","
+                + "\"postings\":[[0],[0],[0],[0],[0],[0],[0]]}", json(index));
+    }
+
+    @Test
+    void indexesThePrefixOfLongTerms() throws IOException {
+        SearchIndex index = new SearchIndex();
+        String token = "0123456789abcdefghijklmnopqrstuvwxyz";
+        index.add(index.newDocument(), "token " + token.toUpperCase());
+        assertEquals("{\"docs\":1,\"terms\":\"" + token.substring(0, 32) + " token\","
+                + "\"postings\":[[0],[0]]}", json(index));
+        assertEquals(token.substring(0, 32), SearchIndex.distinctTerms(token));
+    }
+
+    @Test
+    void splitsByCodePointLikeTheQueryEngine() throws IOException {
+        SearchIndex index = new SearchIndex();
+        // Deseret capitals outside the BMP, Roman numerals (Nl) and superscript digits (No)
+        index.add(index.newDocument(), "\uD801\uDC00\uD801\uDC01 chapter \u2169\u2161 x\u00B2\u00B3");
+        assertEquals("{\"docs\":1,\"terms\":\"chapter x\u00B2\u00B3 \u2179\u2171 \uD801\uDC28\uD801\uDC29\","
+                + "\"postings\":[[0],[0],[0],[0]]}", json(index));
+
+        // Long terms are cut at 32 code points, never between the halves of a surrogate pair
+        String deseret = String.join("", Collections.nCopies(40, "\uD801\uDC00"));
+        assertEquals(String.join("", Collections.nCopies(32, "\uD801\uDC28")), SearchIndex.distinctTerms(deseret));
+    }
+
+    @Test
+    void appendRenumbersTheOtherIndexsDocuments() throws IOException {
+        SearchIndex index = new SearchIndex();
+        index.add(index.newDocument(), "shared first");
+        index.add(index.newDocument(), "first");
+
+        SearchIndex page = new SearchIndex();
+        page.add(page.newDocument(), "shared");
+        page.newDocument();
+        page.add(page.newDocument(), "shared last");
+
+        index.append(page);
+        assertEquals(5, index.documentCount());
+        assertEquals("{\"docs\":5,\"terms\":\"first last shared\","
+                + "\"postings\":[[0,1],[4],[0,2,2]]}", json(index));
+    }
+
+    @Test
+    void distinctTermsIndexLikeTheText() throws IOException {
+        String text = "Pay the bill, then pay THE fee";
+        assertEquals("pay the bill then fee", SearchIndex.distinctTerms(text));
+
+        SearchIndex fromText = new SearchIndex();
+        fromText.add(fromText.newDocument(), text);
+        SearchIndex fromTerms = new SearchIndex();
+        fromTerms.add(fromTerms.newDocument(), SearchIndex.distinctTerms(text));
+        assertEquals(json(fromText), json(fromTerms));
+    }
+}
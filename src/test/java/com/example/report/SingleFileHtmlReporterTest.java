@@ -0,0 +1,75 @@
+package com.example.report;
+
+import com.intuit.karate.Results;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFileHtmlReporterTest {
+
+    private static final Pattern DEFERRED_STEPS = Pattern.compile(
+            "<script type=\"application/gzip;base64\" class=\"deferred-steps\">([^<]*)</script>");
+
+    @TempDir
+    Path dir;
+
+    private String render(SingleFileHtmlReporter.Options options) throws IOException {
+        // One feature of ten scenarios, the last of which fails
+        Results results = SyntheticResults.create(dir, 1, 10, 100);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HtmlOutput html = SingleFileHtmlReporter.openWriter(out)) {
+            SingleFileHtmlReporter.writeReport(results, html, options);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String inflate(String payload) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(payload)))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void failureFirstDefersTheStepsOfPassedScenarios() throws IOException {
+        String report = render(new SingleFileHtmlReporter.Options().failureFirst(true));
+
+        Matcher deferred = DEFERRED_STEPS.matcher(report);
+        int rows = 0;
+        while (deferred.find()) {
+            String steps = inflate(deferred.group(1));
+            assertTrue(steps.contains("<div class=\"steps\">"), steps);
+            assertTrue(steps.contains("match payload.id == " + rows), steps);
+            rows++;
+        }
+        assertEquals(9, rows);
+        assertEquals(9, report.split("<div class=\"scenario compact\"", -1).length - 1);
+
+        // The failed scenario is rendered in full
+        assertTrue(report.contains("match failed: 9"), report);
+        assertTrue(report.contains("match payload.id == 9"), report);
+    }
+
+    @Test
+    void rendersEveryScenarioInFullByDefault() throws IOException {
+        String report = render(new SingleFileHtmlReporter.Options());
+        assertFalse(DEFERRED_STEPS.matcher(report).find());
+        assertFalse(report.contains("scenario compact"));
+        assertTrue(report.contains("match payload.id == 0"), report);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.report;
+
+import com.intuit.karate.Results;
+import com.intuit.karate.Runner;
+import com.intuit.karate.Suite;
+import com.intuit.karate.core.Feature;
+import com.intuit.karate.core.FeatureResult;
+import com.intuit.karate.core.FeatureSection;
+import com.intuit.karate.core.Result;
+import com.intuit.karate.core.ScenarioResult;
+import com.intuit.karate.core.Step;
+import com.intuit.karate.core.StepResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Builds Karate results without running any steps: generated features are given step results
+ * directly, each carrying a step log of the requested size, and saved the way Karate saves them,
+ * so the returned {@link Results} streams them back from disk like a real run's.
+ */
+final class SyntheticResults {
+
+    private SyntheticResults() {
+    }
+
+    /** Every tenth scenario fails on its last step; each scenario's step log is unique. */
+    static Results create(Path workDir, int features, int scenariosPerFeature, int logChars) throws IOException {
+        Path featureDir = Files.createDirectories(workDir.resolve("features"));
+        Suite suite = new Suite(Runner.builder()
+                .reportDir(workDir.resolve("karate-reports").toString())
+                .outputHtmlReport(false)
+                .outputCucumberJson(false)
+                .outputJunitXml(false));
+        for (int f = 0; f < features; f++) {
+            Path featureFile = featureDir.resolve("feature" + f + ".feature");
+            StringBuilder text = new StringBuilder();
+            text.append("@synthetic\n").append("Feature: Synthetic feature ").append(f).append("\n\n");
+            for (int s = 0; s < scenariosPerFeature; s++) {
+                text.append("@smoke\n")
+                    .append("Scenario: Synthetic scenario ").append(f).append('-').append(s).append("\n")
+                    .append("* print payload\n")
+                    .append("* match payload.id == ").append(s).append("\n\n");
+            }
+            Files.write(featureFile, text.toString().getBytes(StandardCharsets.UTF_8));
+
+            // One feature's results at a time, as Karate itself holds them
+            Feature feature = Feature.read(featureFile.toFile());
+            FeatureResult featureResult = new FeatureResult(feature);
+            long start = System.currentTimeMillis();
+            for (FeatureSection section : feature.getSections()) {
+                int s = featureResult.getScenarioResults().size();
+                ScenarioResult scenarioResult = new ScenarioResult(section.getScenario());
+                scenarioResult.setStartTime(start);
+                scenarioResult.setEndTime(start + 5);
+                for (Step step : section.getScenario().getSteps()) {
+                    boolean last = step.getIndex() == section.getScenario().getSteps().size() - 1;
+                    Result result = last && s % 10 == 9
+                            ? Result.failed(start, 2_000_000, new AssertionError("match failed: " + s), step)
+                            : Result.passed(start, 2_000_000);
+                    StepResult stepResult = new StepResult(step, result);
+                    if (!last) {
+                        stepResult.setStepLog(log(f, s, logChars));
+                    }
+                    scenarioResult.addStepResult(stepResult);
+                }
+                featureResult.addResult(scenarioResult);
+            }
+            suite.saveFeatureResults(featureResult);
+        }
+        return Results.of(suite);
+    }
+
+    private static String log(int feature, int scenario, int chars) {
+        String prefix = "{ \"feature\": " + feature + ", \"id\": " + scenario + ", \"body\": \"";
+        char[] body = new char[Math.max(0, chars - prefix.length() - 3)];
+        Arrays.fill(body, (char) ('a' + (feature * 31 + scenario) % 26));
+        return prefix + new String(body) + "\" }";
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.report;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrendStoreTest {
+
+    private static final long MS = 1_000_000;
+
+    @TempDir
+    Path dir;
+
+    /** Records and commits one run of the two scenarios. */
+    private TrendStore.Trends commit(long loginMillis, boolean logoutFailed, int window, int maxRuns) throws IOException {
+        TrendStore store = TrendStore.open(dir);
+        store.record("auth.feature :: login", loginMillis * MS, false);
+        store.record("auth.feature :: logout", 50 * MS, logoutFailed);
+        return store.commit(window, maxRuns);
+    }
+
+    private long runFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".bin")).count();
+        }
+    }
+
+    @Test
+    void reportsTrendsOverTheCommittedRuns() throws IOException {
+        TrendStore.Trends first = commit(100, false, 20, 100);
+        assertEquals(1, first.runs);
+        // One sample says nothing about a trend
+        assertTrue(first.slowest.isEmpty());
+
+        commit(200, true, 20, 100);
+        TrendStore.Trends trends = commit(300, false, 20, 100);
+        assertEquals(3, trends.runs);
+
+        assertEquals(1, trends.growing.size());
+        TrendStore.Row login = trends.growing.get(0);
+        assertEquals("auth.feature :: login", login.key);
+        assertEquals(3, login.samples);
+        assertEquals(200, login.p50Millis);
+        assertEquals(300, login.p95Millis);
+        assertEquals(300, login.latestMillis);
+        assertEquals(100.0, login.growthMillisPerRun, 1e-9);
+        assertEquals(0.0, login.flipRate, 1e-9);
+
+        assertEquals(1, trends.flaky.size());
+        TrendStore.Row logout = trends.flaky.get(0);
+        assertEquals("auth.feature :: logout", logout.key);
+        assertEquals(1.0, logout.flipRate, 1e-9);
+
+        assertEquals(Arrays.asList("auth.feature :: login", "auth.feature :: logout"),
+                Arrays.asList(trends.slowest.get(0).key, trends.slowest.get(1).key));
+    }
+
+    @Test
+    void storesEachKeyOnce() throws IOException {
+        commit(100, false, 20, 100);
+        commit(100, false, 20, 100);
+        TrendStore store = TrendStore.open(dir);
+        store.record("auth.feature :: new\nline", 10 * MS, false);
+        store.commit(20, 100);
+
+        assertEquals(Arrays.asList("auth.feature :: login", "auth.feature :: logout", "auth.feature :: new line"),
+                Files.readAllLines(dir.resolve("scenarios.txt"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void readsOnlyTheWindowAndDeletesRunsBeyondTheLimit() throws IOException {
+        for (int run = 1; run <= 5; run++) {
+            commit(100 * run, false, 20, 3);
+        }
+        assertEquals(3, runFiles());
+
+        TrendStore.Trends trends = commit(600, false, 2, 3);
+        assertEquals(2, trends.runs);
+        assertEquals(500, trends.slowest.get(0).p50Millis);
+        assertEquals(600, trends.slowest.get(0).p95Millis);
+    }
+
+    @Test
+    void mergesCommitsThatShareARunId() throws IOException {
+        for (int build = 1; build <= 3; build++) {
+            // Two shards of each build, the second one retried
+            TrendStore shard1 = TrendStore.open(dir, "build-" + build);
+            shard1.record("auth.feature :: login", 100 * build * MS, false);
+            shard1.commit(20, 100);
+            TrendStore shard2 = TrendStore.open(dir, "build-" + build);
+            shard2.record("auth.feature :: logout", 50 * MS, true);
+            shard2.commit(20, 100);
+            TrendStore retry = TrendStore.open(dir, "build-" + build);
+            retry.record("auth.feature :: logout", 60 * MS, false);
+            TrendStore.Trends trends = retry.commit(20, 100);
+            assertEquals(build, trends.runs);
+        }
+        assertEquals(3, runFiles());
+
+        TrendStore.Trends trends = TrendStore.open(dir, "build-3").commit(20, 100);
+        assertEquals(3, trends.runs);
+        assertEquals("auth.feature :: login", trends.growing.get(0).key);
+        assertEquals(100.0, trends.growing.get(0).growthMillisPerRun, 1e-9);
+        // Only the retried sample of each build counts
+        assertTrue(trends.flaky.isEmpty());
+        assertEquals(60, trends.slowest.get(1).latestMillis);
+        assertEquals(3, trends.slowest.get(1).samples);
+    }
+
+    @Test
+    void rejectsEmptyRunIds() {
+        assertThrows(IllegalArgumentException.class, () -> TrendStore.open(dir, ""));
+        assertThrows(IllegalArgumentException.class, () -> new SingleFileHtmlReporter.Options().runId(""));
+    }
+
+    @Test
+    void truncatesAKeyCutShortByACrash() throws IOException {
+        commit(100, false, 20, 100);
+        Files.write(dir.resolve("scenarios.txt"), "auth.feature :: sign".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        TrendStore store = TrendStore.open(dir);
+        store.record("auth.feature :: signup", 10 * MS, false);
+        store.commit(20, 100);
+        assertEquals(Arrays.asList("auth.feature :: login", "auth.feature :: logout", "auth.feature :: signup"),
+                Files.readAllLines(dir.resolve("scenarios.txt"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void skipsDamagedRunFiles() throws IOException {
+        commit(100, false, 20, 100);
+        Files.write(dir.resolve("run-0000000002.bin"), new byte[] {1, 2, 3});
+        TrendStore.Trends trends = commit(200, false, 20, 100);
+        assertEquals(2, trends.runs);
+        assertEquals(200, trends.slowest.get(0).latestMillis);
+    }
+}